@@ -0,0 +1,207 @@
+package itrans.bench;
+
+import itrans.Glossary;
+import itrans.PckWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Writes a tree of synthetic interface files shaped like the ones unpacked
+ * from interfaces.pck: UTF-16LE with a byte order mark, one {@code DIALOG}
+ * per file and a {@code String="..."} attribute on every control. Strings mix
+ * plain words with the markup the client uses (colour codes, format
+ * arguments, escaped line breaks) and a share of them carry a glossary term.
+ * The same seed always gives the same tree. A target ending in .pck gets the
+ * same files packed into an archive, next to a few binary entries.
+ *
+ * <pre>
+ * java -cp benchmarks.jar itrans.bench.CorpusGenerator &lt;folder|pck&gt; [files] [stringsPerFile] [glossaryHitRate] [seed] [giantFiles]
+ * </pre>
+ */
+public final class CorpusGenerator {
+    private static final String[] WORDS = {
+        "the", "your", "to", "of", "cannot", "be", "used", "here", "please", "select", "item", "target",
+        "is", "too", "far", "away", "inventory", "full", "confirm", "cancel", "close", "open", "remaining",
+        "time", "gold", "reward", "received", "member", "invite", "accept", "decline", "request", "current",
+        "maximum", "required", "upgrade", "success", "failed", "refine", "equipment", "storage", "slot",
+        "empty", "unlock", "daily", "online", "offline", "friend", "mail", "send", "receive", "message",
+        "teleport", "coordinates", "duration", "cooldown", "owner", "price", "sell", "buy", "repair", "all"
+    };
+    private static final String[] CONTROLS = {"LABEL", "BUTTON", "CHECK", "RADIO", "EDIT", "LIST"};
+    private static final String[] COLOURS = {"^FFCC00", "^00FF00", "^FF0000", "^FFFFFF", "^8080FF"};
+
+    /**
+     * Shape of a generated tree.
+     *
+     * @param repeatRate share of strings reused from earlier ones, like the
+     *                   many "OK" and "Cancel" buttons of the real client
+     * @param giantFiles how many of the files, the last ones in path order,
+     *                   get {@value #GIANT_FACTOR} times as many strings, like
+     *                   the quest and help dialogs
+     */
+    public record Spec(int files, int stringsPerFile, double glossaryHitRate, double repeatRate, long seed, int giantFiles) {
+        public static final int GIANT_FACTOR = 50;
+
+        public Spec(int files, int stringsPerFile, double glossaryHitRate, double repeatRate, long seed) {
+            this(files, stringsPerFile, glossaryHitRate, repeatRate, seed, 0);
+        }
+
+        /**
+         * Returns how many strings file {@code index} gets.
+         */
+        public int stringsOf(int index) {
+            return index >= files - giantFiles ? stringsPerFile * GIANT_FACTOR : stringsPerFile;
+        }
+
+        public static Spec of(int files, int stringsPerFile, double glossaryHitRate) {
+            return new Spec(files, stringsPerFile, glossaryHitRate, 0.3, 42);
+        }
+    }
+
+    private final Spec spec;
+    private final Random random;
+    private final List<String> glossaryTerms;
+    private final List<String> issued = new ArrayList<>();
+
+    public CorpusGenerator(Spec spec) {
+        this.spec = spec;
+        this.random = new Random(spec.seed());
+        this.glossaryTerms = Glossary.defaults().getExcludedWords();
+    }
+
+    /**
+     * Writes {@code spec.files()} files below {@code folder}, ten per sub folder.
+     */
+    public static List<Path> generate(Path folder, Spec spec) throws IOException {
+        CorpusGenerator generator = new CorpusGenerator(spec);
+        List<Path> paths = new ArrayList<>(spec.files());
+        for (int i = 0; i < spec.files(); i++) {
+            Path path = folder.resolve(String.format(Locale.ROOT, "dlg%03d/win_%05d.xml", i / 10, i));
+            Files.createDirectories(path.getParent());
+            Files.write(path, encode(generator.nextFile("Win_" + i, spec.stringsOf(i))));
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    /**
+     * Writes the same files as {@link #generate(Path, Spec)} into an archive,
+     * with one binary entry per sub folder, and returns the number of entries.
+     */
+    public static int generateArchive(Path archive, Spec spec) throws IOException {
+        CorpusGenerator generator = new CorpusGenerator(spec);
+        Random binary = new Random(spec.seed());
+        int entries = 0;
+        try (PckWriter writer = PckWriter.create(archive)) {
+            for (int i = 0; i < spec.files(); i++) {
+                if (i % 10 == 0) {
+                    byte[] image = new byte[4096];
+                    binary.nextBytes(image);
+                    writer.add(String.format(Locale.ROOT, "dlg%03d\\frame.dds", i / 10), image);
+                    entries++;
+                }
+                String name = String.format(Locale.ROOT, "dlg%03d\\win_%05d.xml", i / 10, i);
+                writer.add(name, encode(generator.nextFile("Win_" + i, spec.stringsOf(i))));
+                entries++;
+            }
+            writer.finish();
+        }
+        return entries;
+    }
+
+    /**
+     * Encodes content the way the client stores it, UTF-16LE behind a byte order mark.
+     */
+    public static byte[] encode(String content) {
+        return ("\uFEFF" + content).getBytes(StandardCharsets.UTF_16LE);
+    }
+
+    /**
+     * Builds the content of one interface file.
+     */
+    public String nextFile(String dialogName) {
+        return nextFile(dialogName, spec.stringsPerFile());
+    }
+
+    /**
+     * Builds the content of one interface file with {@code strings} strings.
+     */
+    public String nextFile(String dialogName, int strings) {
+        StringBuilder sb = new StringBuilder(strings * 160);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-16\"?>\r\n");
+        sb.append("<DIALOG Name=\"").append(dialogName).append("\" x=\"0\" y=\"0\" Width=\"400\" Height=\"300\" String=\"")
+                .append(nextString()).append("\" Frame=\"frame.bmp\">\r\n");
+        for (int i = 1; i < strings; i++) {
+            String control = CONTROLS[random.nextInt(CONTROLS.length)];
+            sb.append("\t<").append(control).append(" Name=\"Ctl_").append(i)
+                    .append("\" x=\"").append(random.nextInt(400)).append("\" y=\"").append(random.nextInt(300))
+                    .append("\" Width=\"120\" Height=\"16\" String=\"").append(nextString())
+                    .append("\" Align=\"0\" FontName=\"Arial\" FontSize=\"10\" TextColor=\"255,255,255,255\"/>\r\n");
+        }
+        sb.append("</DIALOG>\r\n");
+        return sb.toString();
+    }
+
+    /**
+     * Returns the next string value, already in XML attribute form.
+     */
+    public String nextString() {
+        if (!issued.isEmpty() && random.nextDouble() < spec.repeatRate()) {
+            return issued.get(random.nextInt(Math.min(issued.size(), 200)));
+        }
+        StringBuilder sb = new StringBuilder(64);
+        int words = 1 + random.nextInt(10);
+        int termAt = random.nextDouble() < spec.glossaryHitRate() ? random.nextInt(words) : -1;
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                sb.append(' ');
+            }
+            if (w == termAt) {
+                sb.append(glossaryTerms.get(random.nextInt(glossaryTerms.size())));
+                continue;
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            sb.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+        }
+        switch (random.nextInt(8)) {
+            case 0 -> sb.insert(0, COLOURS[random.nextInt(COLOURS.length)]).append("^FFFFFF");
+            case 1 -> sb.append(": %d");
+            case 2 -> sb.append(" %s");
+            case 3 -> sb.append("\\r\\n").append(WORDS[random.nextInt(WORDS.length)]);
+            default -> sb.append('.');
+        }
+        String value = sb.toString();
+        issued.add(value);
+        return value;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CorpusGenerator <folder|pck> [files] [stringsPerFile] [glossaryHitRate] [seed] [giantFiles]");
+            System.exit(2);
+        }
+        Spec spec = new Spec(
+                args.length > 1 ? Integer.parseInt(args[1]) : 500,
+                args.length > 2 ? Integer.parseInt(args[2]) : 100,
+                args.length > 3 ? Double.parseDouble(args[3]) : 0.2,
+                0.3,
+                args.length > 4 ? Long.parseLong(args[4]) : 42,
+                args.length > 5 ? Integer.parseInt(args[5]) : 0);
+        Path target = Paths.get(args[0]);
+        if (target.toString().toLowerCase(Locale.ROOT).endsWith(".pck")) {
+            int entries = generateArchive(target, spec);
+            System.out.println("Wrote " + entries + " entries to " + target.toAbsolutePath());
+            return;
+        }
+        List<Path> paths = generate(target, spec);
+        System.out.println("Wrote " + paths.size() + " files to " + target.toAbsolutePath());
+    }
+}
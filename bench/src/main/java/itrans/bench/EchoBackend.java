@@ -0,0 +1,31 @@
+package itrans.bench;
+
+import itrans.TranslationBackend;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * In-process stand-in for the translation service: every request returns its
+ * text unchanged, after an optional delay standing in for the round trip.
+ */
+public class EchoBackend implements TranslationBackend {
+    private final long latencyMillis;
+
+    public EchoBackend(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public String translate(String text, String targetLanguage) throws IOException {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Translation request interrupted");
+            }
+        }
+        return text;
+    }
+}
@@ -0,0 +1,116 @@
+package itrans.bench;
+
+import itrans.Glossary;
+import itrans.JobLog;
+import itrans.JobManifest;
+import itrans.JobSummary;
+import itrans.TranslationBatcher;
+import itrans.TranslationJob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A whole job over a generated tree against the in-process {@link EchoBackend}:
+ * scan, mask, batch, translate, restore and write. No translation memory is
+ * used and the output folder is emptied before every run, so each run does
+ * the full work. {@code source} picks between a folder of extracted files and
+ * the same files packed into an interfaces.pck archive, {@code languages}
+ * how many target languages the one job translates into, and {@code giantFiles}
+ * how many of the files are {@value CorpusGenerator.Spec#GIANT_FACTOR} times the
+ * usual size, to see how a skewed tree ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+    @Param({"200"})
+    public int files;
+
+    @Param({"100"})
+    public int stringsPerFile;
+
+    @Param({"0.2"})
+    public double glossaryHitRate;
+
+    @Param({"0", "20"})
+    public long latencyMillis;
+
+    @Param({"folder", "pck"})
+    public String source;
+
+    @Param({"1", "3"})
+    public int languages;
+
+    @Param({"0"})
+    public int giantFiles;
+
+    private Path root;
+    private Path input;
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        root = Files.createTempDirectory("itrans-bench");
+        output = root.resolve("out");
+        CorpusGenerator.Spec spec = new CorpusGenerator.Spec(files, stringsPerFile, glossaryHitRate, 0.3, 42, giantFiles);
+        if (source.equals("pck")) {
+            input = root.resolve("interfaces.pck");
+            CorpusGenerator.generateArchive(input, spec);
+        } else {
+            input = root.resolve("in");
+            CorpusGenerator.generate(input, spec);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearOutput() throws IOException {
+        delete(output);
+        delete(JobManifest.stateFolder(output));
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        delete(root);
+    }
+
+    @Benchmark
+    public List<JobSummary> translate() throws IOException {
+        TranslationBatcher batcher = new TranslationBatcher(new EchoBackend(latencyMillis), 4500, 12000);
+        TranslationJob job = new TranslationJob(Glossary.defaults(), batcher, null, new JobLog());
+        job.setParallelism(8);
+        return job.run(input, output, List.of("id", "ms", "vi").subList(0, languages));
+    }
+
+    private static void delete(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(folder)) {
+            for (Path path : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
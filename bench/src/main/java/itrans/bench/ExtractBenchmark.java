@@ -0,0 +1,47 @@
+package itrans.bench;
+
+import itrans.InterfaceFile;
+import itrans.InterfaceScan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Finding and decoding the {@code String="..."} values of one UTF-16LE
+ * interface file, without masking.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractBenchmark {
+    @Param({"100", "1000"})
+    public int stringsPerFile;
+
+    private InterfaceFile file;
+
+    @Setup
+    public void setUp() {
+        String content = new CorpusGenerator(CorpusGenerator.Spec.of(1, stringsPerFile, 0.2)).nextFile("Win_0");
+        file = InterfaceFile.wrap(CorpusGenerator.encode(content));
+    }
+
+    @Benchmark
+    public List<InterfaceScan.Segment> extract() {
+        return InterfaceScan.extract(file, UnaryOperator.identity());
+    }
+}
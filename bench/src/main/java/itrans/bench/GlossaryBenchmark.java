@@ -0,0 +1,67 @@
+package itrans.bench;
+
+import itrans.Glossary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Masking 1000 strings with the default glossary, and restoring the masked
+ * strings as if they came back from the service unchanged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlossaryBenchmark {
+    private static final int STRINGS = 1000;
+
+    @Param({"0.0", "0.2", "1.0"})
+    public double glossaryHitRate;
+
+    private Glossary glossary;
+    private List<String> texts;
+    private List<String> masked;
+
+    @Setup
+    public void setUp() {
+        glossary = Glossary.defaults();
+        CorpusGenerator generator = new CorpusGenerator(new CorpusGenerator.Spec(1, STRINGS, glossaryHitRate, 0, 42));
+        texts = new ArrayList<>(STRINGS);
+        masked = new ArrayList<>(STRINGS);
+        for (int i = 0; i < STRINGS; i++) {
+            String text = generator.nextString();
+            texts.add(text);
+            masked.add(glossary.mask(text));
+        }
+    }
+
+    @Benchmark
+    public void mask(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(glossary.mask(text));
+        }
+    }
+
+    @Benchmark
+    public void restore(Blackhole blackhole) {
+        for (String text : masked) {
+            blackhole.consume(glossary.restore(text));
+        }
+    }
+}
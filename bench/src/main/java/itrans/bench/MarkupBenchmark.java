@@ -0,0 +1,64 @@
+package itrans.bench;
+
+import itrans.Glossary;
+import itrans.MarkupTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Taking 1000 masked strings apart into markup and translatable runs, and
+ * putting them back together as if the runs came back from the service
+ * unchanged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkupBenchmark {
+    private static final int STRINGS = 1000;
+
+    private List<String> masked;
+    private List<MarkupTokenizer.Template> templates;
+
+    @Setup
+    public void setUp() {
+        Glossary glossary = Glossary.defaults();
+        CorpusGenerator generator = new CorpusGenerator(new CorpusGenerator.Spec(1, STRINGS, 0.2, 0, 42));
+        masked = new ArrayList<>(STRINGS);
+        templates = new ArrayList<>(STRINGS);
+        for (int i = 0; i < STRINGS; i++) {
+            String text = glossary.mask(generator.nextString());
+            masked.add(text);
+            templates.add(MarkupTokenizer.tokenize(text));
+        }
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole blackhole) {
+        for (String text : masked) {
+            blackhole.consume(MarkupTokenizer.tokenize(text));
+        }
+    }
+
+    @Benchmark
+    public void fill(Blackhole blackhole) {
+        for (MarkupTokenizer.Template template : templates) {
+            blackhole.consume(template.fill(template.isTranslatable() ? template.run() : ""));
+        }
+    }
+}
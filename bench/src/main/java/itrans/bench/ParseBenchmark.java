@@ -0,0 +1,58 @@
+package itrans.bench;
+
+import itrans.TranslationResponseParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the UTF-8 bytes of a translation response of a batch, one sentence per batched string
+ * as the service answers a newline joined request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    @Param({"1", "50"})
+    public int sentences;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        CorpusGenerator generator = new CorpusGenerator(new CorpusGenerator.Spec(1, sentences, 0.2, 0, 42));
+        StringBuilder sb = new StringBuilder("[[");
+        for (int i = 0; i < sentences; i++) {
+            String text = generator.nextString() + (i + 1 < sentences ? "\n" : "");
+            sb.append(i > 0 ? "," : "").append("[\"").append(escape(text)).append("\",\"").append(escape(text))
+                    .append("\",null,null,10]");
+        }
+        sb.append("],null,\"en\",null,null,null,1.0,[],[[\"en\"],null,[1.0],[\"en\"]]]");
+        json = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String parse() throws IOException {
+        return TranslationResponseParser.parse(new ByteArrayInputStream(json));
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,64 @@
+package itrans.bench;
+
+import itrans.InterfaceFile;
+import itrans.InterfaceScan;
+import itrans.XmlStringRewriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Writing the translated values back into one UTF-16LE interface file, to a
+ * channel that discards the bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RewriteBenchmark {
+    private static final WritableByteChannel DISCARD = Channels.newChannel(OutputStream.nullOutputStream());
+
+    @Param({"100", "1000"})
+    public int stringsPerFile;
+
+    private InterfaceFile file;
+    private List<InterfaceScan.Segment> segments;
+    private List<String> replacements;
+
+    @Setup
+    public void setUp() {
+        String content = new CorpusGenerator(CorpusGenerator.Spec.of(1, stringsPerFile, 0.2)).nextFile("Win_0");
+        file = InterfaceFile.wrap(CorpusGenerator.encode(content));
+        segments = InterfaceScan.extract(file, UnaryOperator.identity());
+        replacements = new ArrayList<>(segments.size());
+        for (InterfaceScan.Segment segment : segments) {
+            // Translations tend to be a little longer than the source
+            replacements.add(segment.text().toUpperCase(Locale.ROOT) + " xx");
+        }
+    }
+
+    @Benchmark
+    public void rewrite() throws IOException {
+        XmlStringRewriter.write(file, segments, replacements, DISCARD);
+    }
+}
@@ -1,6 +1,6 @@
 @echo off
 echo "Compile resource class"
-javac -d bin -sourcepath src src/TranslatorApp.java
+javac -d bin -sourcepath src src/TranslatorApp.java src/itrans/*.java
 echo "Compile .jar file"
 jar cvfm I-Trans.jar MANIFEST.MF -C bin . -C res .
 echo "Done"
@@ -2,16 +2,18 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URI;
-import java.net.URL;
-import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.nio.file.Path;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+
+import itrans.FolderWatcher;
+import itrans.Glossary;
+import itrans.JobLog;
+import itrans.LogRingBuffer;
+import itrans.TranslationEngine;
+import itrans.TranslationJob;
+import itrans.TranslatorCli;
+import itrans.TranslatorConfig;
 
 public class TranslatorApp {
     private JFrame frame;
@@ -19,12 +21,32 @@ public class TranslatorApp {
     private JTextField outputFolderField;
     private JComboBox<String> languageComboBox;
     private JTextArea logArea; // Area for displaying process logs
+    private JLabel metricsLabel; // Live request and throughput numbers
+    private JButton translateButton;
+    private JButton estimateButton;
+    private JToggleButton watchButton;
+    private final LogRingBuffer logBuffer; // Latest log lines shown in logArea
+    private long shownLogVersion = -1;
+    private final TranslationEngine engine; // Shared by every job so connections, rate limit and memory are shared too
+    private FolderWatcher watcher; // Set while the Watch button is down
 
     public TranslatorApp() {
+        // Load config.ini and create the translation engine once
+        TranslatorConfig config;
+        try {
+            config = TranslatorConfig.load();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "Failed to load configuration: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            config = TranslatorConfig.empty();
+        }
+        engine = TranslationEngine.create(config, warning ->
+                JOptionPane.showMessageDialog(null, warning, "Error", JOptionPane.ERROR_MESSAGE));
+        logBuffer = new LogRingBuffer(config.getInt("logViewLines", 2000));
+
         // Build the GUI interface
         frame = new JFrame("I-Trans 1.0");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setSize(600, 400); // Window size
+        frame.setSize(760, 420); // Window size
         frame.setLayout(new FlowLayout()); // Using FlowLayout
 
         // Center the window on the screen
@@ -38,20 +60,30 @@ public class TranslatorApp {
         outputFolderField = new JTextField(30); // Larger size
 
         JButton inputButton = new JButton("Select Input Folder");
-        inputButton.addActionListener(e -> chooseFolder(inputFolderField));
+        inputButton.addActionListener(e -> chooseFolder(inputFolderField, true));
 
         JButton outputButton = new JButton("Select Output Folder");
-        outputButton.addActionListener(e -> chooseFolder(outputFolderField));
+        outputButton.addActionListener(e -> chooseFolder(outputFolderField, false));
+
+        translateButton = new JButton("Translate");
+        translateButton.addActionListener(e -> translateFiles(false));
 
-        JButton translateButton = new JButton("Translate");
-        translateButton.addActionListener(e -> translateFiles());
+        estimateButton = new JButton("Estimate");
+        estimateButton.setToolTipText("Scan the input and show how many requests the job needs and how long it will take, without translating");
+        estimateButton.addActionListener(e -> translateFiles(true));
+
+        watchButton = new JToggleButton("Watch");
+        watchButton.setToolTipText("Translate the input folder, then translate files again whenever they are saved, until released");
+        watchButton.addActionListener(e -> toggleWatch());
 
         // Dropdown for language selection
         String[] languages = {"id", "am", "ar", "eu", "bn", "en-GB", "pt-BR", "bg", "ca", "chr", "jam", "cs", "da", "nl", "en", "et", "fil", "fi", "fr", "de", "el", "gu", "iw", "hi", "hu", "it", "ja", "kn", "ko", "lv", "lt", "ms", "ml", "mr", "no", "pl", "pt-PT", "ro", "ru", "sr", "zh-CN", "sk", "sl", "es", "sw", "sv", "ta", "te", "th", "zh-TW", "tr", "ur", "uk", "vi", "cy"};
         languageComboBox = new JComboBox<>(languages);
+        languageComboBox.setEditable(true); // Several languages can be typed comma separated, e.g. id,ms,vi
+        languageComboBox.setToolTipText("One language, or several separated by commas, each into its own sub folder");
 
         // Add components to the frame
-        frame.add(new JLabel("Input Folder:"));
+        frame.add(new JLabel("Input Folder or .pck:"));
         frame.add(inputFolderField);
         frame.add(inputButton);
 
@@ -59,9 +91,11 @@ public class TranslatorApp {
         frame.add(outputFolderField);
         frame.add(outputButton);
 
-        frame.add(new JLabel("Select Language:"));
+        frame.add(new JLabel("Select Language(s):"));
         frame.add(languageComboBox);
         frame.add(translateButton);
+        frame.add(estimateButton);
+        frame.add(watchButton);
 
         // Create JTextArea for process logs
         logArea = new JTextArea(15, 50); // Log area size
@@ -69,239 +103,195 @@ public class TranslatorApp {
         JScrollPane scrollPane = new JScrollPane(logArea); // Add scroll to log area
         frame.add(scrollPane);
 
+        // Show live job metrics below the log
+        metricsLabel = new JLabel(" ");
+        frame.add(metricsLabel);
+
+        // Redraw the log and metrics at most 10 times per second, however fast messages arrive
+        new Timer(100, e -> refreshLog()).start();
+
         frame.setVisible(true);
     }
 
-    private void chooseFolder(JTextField textField) {
+    private void refreshLog() {
+        metricsLabel.setText(engine.getMetrics().getStatusLine());
+        long version = logBuffer.getVersion();
+        if (version != shownLogVersion) {
+            shownLogVersion = version;
+            logArea.setText(logBuffer.getText());
+            logArea.setCaretPosition(logArea.getDocument().getLength()); // Scroll to bottom
+        }
+    }
+
+    // The input may also be an interfaces.pck archive
+    private void chooseFolder(JTextField textField, boolean allowArchive) {
         JFileChooser chooser = new JFileChooser();
-        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setFileSelectionMode(allowArchive ? JFileChooser.FILES_AND_DIRECTORIES : JFileChooser.DIRECTORIES_ONLY);
         if (chooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
             textField.setText(chooser.getSelectedFile().getAbsolutePath());
         }
     }
 
-    private void translateFiles() {
-        String inputFolder = inputFolderField.getText();
-        String outputFolder = outputFolderField.getText();
-        String targetLanguage = (String) languageComboBox.getSelectedItem();
+    private List<String> selectedLanguages() {
+        List<String> targetLanguages = new ArrayList<>();
+        for (String language : String.valueOf(languageComboBox.getSelectedItem()).split(",")) {
+            if (!language.trim().isEmpty()) {
+                targetLanguages.add(language.trim());
+            }
+        }
+        return targetLanguages;
+    }
 
-        if (inputFolder.isEmpty() || outputFolder.isEmpty()) {
+    // Shows what is missing and returns false when a job cannot start
+    private boolean checkSelection(List<String> targetLanguages) {
+        if (inputFolderField.getText().isEmpty() || outputFolderField.getText().isEmpty()) {
             JOptionPane.showMessageDialog(frame, "Please select input and output folders.", "Error", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        if (targetLanguages.isEmpty()) {
+            JOptionPane.showMessageDialog(frame, "Please select a language.", "Error", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        return true;
+    }
+
+    // Build the glossary from config.ini once for each job or watch
+    private Glossary loadGlossary(JobLog log) {
+        try {
+            return Glossary.fromConfig(TranslatorConfig.load(engine.getConfig().getSource()));
+        } catch (IOException e) {
+            log.error("Failed to load configuration: " + e.getMessage());
+            return Glossary.defaults();
+        }
+    }
+
+    // A dry run only scans the input and logs the estimate
+    private void translateFiles(boolean dryRun) {
+        String inputFolder = inputFolderField.getText();
+        String outputFolder = outputFolderField.getText();
+        List<String> targetLanguages = selectedLanguages();
+        if (!checkSelection(targetLanguages)) {
             return;
         }
 
+        // The engine runs one job at a time, its jobs share the backend's log and the metrics
+        setJobButtonsEnabled(false);
+
         // Use SwingWorker to process translation in the background
-        SwingWorker<Void, String> worker = new SwingWorker<>() {
+        // Messages go to the log file and the log view, never straight to Swing
+        JobLog log = engine.createLog().addSink(engine.getLogLevel(), logBuffer);
+
+        SwingWorker<Void, Void> worker = new SwingWorker<>() {
             @Override
             protected Void doInBackground() throws Exception {
+                // Scan the whole tree first, then translate every unique string once per language
+                TranslationJob job = engine.createJob(loadGlossary(log), log);
                 try {
-                    Files.walk(Paths.get(inputFolder))
-                            .filter(path -> path.toString().endsWith(".xml"))
-                            .forEach(path -> {
-                                // Get relative path from inputFolder to maintain folder structure
-                                Path relativePath = Paths.get(inputFolder).relativize(path);
-                                File outputFile = new File(outputFolder, relativePath.toString());
-
-                                // Create output folder if it doesn't exist
-                                outputFile.getParentFile().mkdirs();
-
-                                // Translate the file
-                                translateFile(path.toFile(), outputFile, targetLanguage);
-                            });
+                    if (dryRun) {
+                        job.estimate(Paths.get(inputFolder), Paths.get(outputFolder), targetLanguages);
+                        return null;
+                    }
+                    job.run(Paths.get(inputFolder), Paths.get(outputFolder), targetLanguages);
                 } catch (IOException e) {
-                    publish("An error occurred while processing files: " + e.getMessage());
+                    log.error("An error occurred while processing files: " + e.getMessage());
                 }
                 return null;
             }
 
-            @Override
-            protected void process(List<String> chunks) {
-                for (String message : chunks) {
-                    logArea.append(message + "\n");
-                    logArea.setCaretPosition(logArea.getDocument().getLength()); // Scroll to bottom
-                }
-            }
-
             @Override
             protected void done() {
                 try {
                     get(); // Catch any exceptions from doInBackground
                 } catch (Exception e) {
-                    publish("Translation failed: " + e.getMessage());
+                    log.error("Translation failed: " + e.getMessage());
                 }
-                JOptionPane.showMessageDialog(frame, "Translation process completed.", "Success", JOptionPane.INFORMATION_MESSAGE);
-            }
-
-            private void translateFile(File inputFile, File outputFile, String targetLanguage) {
-                try {
-                    String content = readFileWithBOM(inputFile);
-                    String regex = "String=\"(.*?)\"";
-                    Pattern pattern = Pattern.compile(regex);
-                    Matcher matcher = pattern.matcher(content);
-            
-                    StringBuilder modifiedContent = new StringBuilder(content);
-            
-                    // List of excluded words
-                    List<String> excludedWords = List.of(
-                        "Arcane Sky", "Mirage Sky", "Astral Sky", "Shifting Sky", "Twilight Sky", "Royal Sky",
-                        "Pious Sky", "Apex Sky", "Spiritual Adept", "Aware of Principle", "Aware of Harmony",
-                        "Aware of Discord", "Aware of Coalescence", "Transcendent", "Enlightened One",
-                        "Aware of Vacuity", "Aware of the Myriad", "Master of Harmony", "Celestial Sage",
-                        "Aware of the Void", "Master of Discord", "Celestial Demon", "Chaotic Soul",
-                        "Celestial Saint", "Try Out", "War Avatar", "Total Aptitute", "Perfect World", "Thigh Thickness",
-                        "Astral Infusion", "Winged Elf", "Untamed Rising", "Arctic Warfare",
-                        "Username", "Password", "Start", "Level", "Vitality", "Strength", "Magic", "Dexternity",
-                        "Spirit", "Damage", "Attack", "Defense", "Soulforce", "Stealth", "Slaying",
-                        "Warding", "Title", "Order", "Fashion", "Quest", "Flyer", "Codex", "Warsoul",
-                        "Event", "Cross", "Squad", "Faction", "Private", "Trade", "Chat", "World",
-                        "Horn", "Skill", "Skills", "Demon", "Sage", "Leadership", "Nuema", "Destroyer",
-                        "Battle", "Longetivity", "Durability", "Soulprime", "Lifeprime", "infuse",
-                        "Infuse", "Bestiary", "Pet", "Meridian", "Area", "Shop", "Star", "Point",
-                        "Flyers", "Mount", "Utility", "Craft", "Auction", "Settings", "Game",
-                        "Hotkeys", "Shortcut", "Default", "Horoscope", "Stargazing", "Starshift",
-                        "Birthstar", "Fatestar", "Summon", "Luminance", "Shroud", "Corona", "Glyph",
-                        "Cultivation", "Warrior", "Untamed", "Tideborn", "Earthguard", "Nightshade",
-                        "Blademaster", "Wizard", "Psychic", "Venomancer", "Barbarian", "Assassin",
-                        "Archer", "Cleric", "Seeker", "Mystic", "Duskblade", "Stormbringer", "Windwalker",
-                        "Technician", "Edgerunner", "Class", "NOTICE", "Nation", "T.", "E.", "W.",
-                        "H.", "U.", "N.", "Servers", "Server", "server", "Face", "Lips", "Transpar.",
-                        "Embellish", "Bundle", "Hair", "Facial", "CrusThickness", "Soften", "Money", "CON",
-                        "STR", "INT", "DEX", "Guild", "Rage", "pirate games", "Games"
-                    );
-            
-                    // List of replaced words
-                    List<String> replacedWords = List.of(
-                        "Arcane Sky", "Mirage Sky", "Astral Sky", "Shifting Sky", "Twilight Sky", "Royal Sky",
-                        "Pious Sky", "Apex Sky", "Spiritual Adept", "Aware of Principle", "Aware of Harmony",
-                        "Aware of Discord", "Aware of Coalescence", "Transcendent", "Enlightened One",
-                        "Aware of Vacuity", "Aware of the Myriad", "Master of Harmony", "Celestial Sage",
-                        "Aware of the Void", "Master of Discord", "Celestial Demon", "Chaotic Soul",
-                        "Celestial Saint", "Coba", "War Avatar", "Total Aptitute", "Perfect World", "Tebal Paha",
-                        "Astral Infusion", "Peri", "Kebangkitan Siluman", "Perang Arctic",
-                        "Username", "Password", "Masuk", "Level", "Vitality", "Strength", "Magic", "Dexternity",
-                        "Spirit", "Damage", "Attack", "Defense", "Soulforce", "Stealth", "Slaying",
-                        "Warding", "Title", "Order", "Busana", "Quest", "Flyer", "Codex", "Warsoul",
-                        "Event", "Cross", "Party", "Guild", "Private", "Trade", "Chat", "World",
-                        "Horn", "Skill", "Skills", "Demon", "Sage", "Leadership", "Nuema", "Destroyer",
-                        "Battle", "Longetivity", "Durability", "Soulprime", "Lifeprime", "infuse",
-                        "Infuse", "Bestiary", "Pet", "Meridian", "Area", "Shop", "Star", "Point",
-                        "Flyers", "Mount", "Utility", "Craft", "Auction", "Settings", "Game",
-                        "Hotkeys", "Shortcut", "Default", "Horoscope", "Stargazing", "Starshift",
-                        "Birthstar", "Fatestar", "Summon", "Luminance", "Shroud", "Corona", "Glyph",
-                        "Kultivasi", "Warrior", "Siluman", "Duyung", "Dewa", "Nightshade",
-                        "Warrior", "Mage", "Psychic", "Foxlady", "Bestial", "Assassin",
-                        "Archer", "Priest", "Seeker", "Mystic", "Duskblade", "Stormbringer", "Windwalker",
-                        "Technician", "Edgerunner", "Job", "PERHATIAN", "Nation", "Du.", "De.", "P.",
-                        "M.", "S.", "N.", "Servers", "Server", "server", "Wajah", "Lips", "Transparasi",
-                        "Hiasan", "Ikat", "Rambut", "Rias Wajah", "Tebal Betis", "Lembut", "Koin", "CON",
-                        "STR", "INT", "DEX", "Guild", "Kritikal", "monetisasi game", "Game"
-                    );
-            
-                    while (matcher.find()) {
-                        String originalText = matcher.group(1).trim();
-            
-                        for (int i = 0; i < excludedWords.size(); i++) {
-                            String excludedWord = excludedWords.get(i);
-            
-                            String wordPattern = "\\b" + Pattern.quote(excludedWord) + "\\b";
-                            Pattern wordRegex = Pattern.compile(wordPattern);
-                            Matcher wordMatcher = wordRegex.matcher(originalText);
-            
-                            if (wordMatcher.find()) {
-                                String uniquePlaceholder = "[" + (i + 1) + "[" + excludedWord + "]]";
-                                originalText = wordMatcher.replaceAll(uniquePlaceholder);
-                            }
-                        }
-            
-                        String translatedText = translateText(originalText, targetLanguage);
-                        String tagPattern = "\\[(\\d+)\\[(.*?)]]";
-                        Pattern tagRegex = Pattern.compile(tagPattern);
-                        Matcher tagMatcher = tagRegex.matcher(translatedText);
-            
-                        while (tagMatcher.find()) {
-                            int index = Integer.parseInt(tagMatcher.group(1)) - 1;
-                            if (index >= 0 && index < replacedWords.size()) {
-                                String originalWord = replacedWords.get(index);
-                                translatedText = translatedText.replace(tagMatcher.group(0), originalWord);
-                            }
-                        }
-                        // Remove all words that have the format [[word]] and word]]
-                        translatedText = translatedText.replaceAll("\\[\\[.*?\\]\\]", ""); // Remove [[...]] along with its contents
-                        translatedText = translatedText.replaceAll("\\b[^\\s\\[]*\\]\\]", ""); // Remove words ending with ]]
-            
-                        modifiedContent = new StringBuilder(modifiedContent.toString().replace(matcher.group(0), "String=\"" + translatedText + "\""));
-            
-                        logTranslation(inputFile, originalText, translatedText);
-                    }
-            
-                    Files.write(outputFile.toPath(), modifiedContent.toString().getBytes("UTF-16LE"));
-                    publish("File saved: " + outputFile.getAbsolutePath());
-                } catch (IOException e) {
-                    publish("Error processing file: " + inputFile.getAbsolutePath() + " - " + e.getMessage());
+                refreshLog();
+                setJobButtonsEnabled(true);
+                if (!dryRun) {
+                    JOptionPane.showMessageDialog(frame, "Translation process completed.", "Success", JOptionPane.INFORMATION_MESSAGE);
                 }
-            }            
-
-            private void logTranslation(File inputFile, String originalText, String translatedText) {
-                // Add log to JTextArea
-                publish("Translated from file: " + inputFile.getAbsolutePath());
-                publish("Original: " + originalText);
-                publish("Translated: " + translatedText + "\n");
             }
+        };
 
-            private String readFileWithBOM(File file) throws IOException {
-                // Read file content, taking into account BOM for UTF-8 and UTF-16
-                byte[] bytes = Files.readAllBytes(file.toPath());
-                String content = new String(bytes, "UTF-16LE"); // Assuming the file is in UTF-16LE
-                return content;
-            }
+        worker.execute(); // Execute the worker
+    }
 
-            private String translateText(String text, String targetLanguage) {
-                try {
-                    // Temporarily replace \r and \n with placeholders
-                    text = text.replace("\\r", " [[CR]] ").replace("\\n", " [[LF]] ");
-
-                    // Create a URL for the Google Translate API
-                    String urlStr = "https://translate.googleapis.com/translate_a/single?client=gtx&sl=auto&tl=" + targetLanguage + "&dt=t&q=" + java.net.URLEncoder.encode(text, "UTF-8");
-                    // Use URI to resolve URL issues
-                    URI uri = new URI(urlStr);
-                    HttpURLConnection conn = (HttpURLConnection) uri.toURL().openConnection();
-                    conn.setRequestMethod("GET");
-                    conn.setRequestProperty("Accept-Charset", "UTF-8");
-
-                    // Read the response
-                    BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), "UTF-8"));
-                    StringBuilder response = new StringBuilder();
-                    String inputLine;
-                    while ((inputLine = in.readLine()) != null) {
-                        response.append(inputLine);
+    // Pressing Watch translates the input folder and keeps translating its changes, releasing it stops
+    private void toggleWatch() {
+        if (!watchButton.isSelected()) {
+            FolderWatcher stopping = watcher;
+            watcher = null;
+            if (stopping != null) {
+                // Only pressed again once the job in progress is done and the watch has ended
+                watchButton.setEnabled(false);
+                // Closing waits for a job in progress, keep that off the event thread
+                new Thread(() -> {
+                    try {
+                        stopping.close();
+                    } catch (IOException e) {
+                        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame,
+                                "Failed to stop watching: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
                     }
-                    in.close();
-
-                    // Extract translation from JSON response
-                    // String jsonResponse = response.toString();
-                    // String translatedText = jsonResponse.split("\"")[1]; // Get the translation
-                    
-                    // Extract translation text from JSON response
-                    String jsonResponse = response.toString();
+                }).start();
+            }
+            return;
+        }
+        List<String> targetLanguages = selectedLanguages();
+        if (!checkSelection(targetLanguages)) {
+            watchButton.setSelected(false);
+            return;
+        }
 
-                    // Use regex to safely extract the translation from JSON
-                    String translatedText = jsonResponse.replaceAll(".*?\"(.*?)\".*", "$1");
+        JobLog log = engine.createLog().addSink(engine.getLogLevel(), logBuffer);
+        try {
+            watcher = new FolderWatcher(engine, loadGlossary(log), log, Paths.get(inputFolderField.getText()),
+                    Paths.get(outputFolderField.getText()), targetLanguages);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(frame, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            watchButton.setSelected(false);
+            return;
+        }
+        FolderWatcher started = watcher;
+        translateButton.setEnabled(false);
+        estimateButton.setEnabled(false);
 
-                    // Return placeholders to escape sequences
-                    translatedText = translatedText.replace("[[CR]]", "\\r").replace("[[LF]]", "\\n");
+        SwingWorker<Void, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                started.run(summaries -> { }); // Every job logs its own progress
+                return null;
+            }
 
-                    return translatedText;
+            @Override
+            protected void done() {
+                try {
+                    get();
                 } catch (Exception e) {
-                    publish("Translation error: " + e.getMessage());
-                    return text; // Return the original text on error
+                    log.error("Watching failed: " + e.getMessage());
+                }
+                refreshLog();
+                if (watcher == started) {
+                    watcher = null;
                 }
+                watchButton.setSelected(false);
+                setJobButtonsEnabled(true);
             }
         };
 
-        worker.execute(); // Execute the worker
+        worker.execute();
+    }
+
+    private void setJobButtonsEnabled(boolean enabled) {
+        translateButton.setEnabled(enabled);
+        estimateButton.setEnabled(enabled);
+        watchButton.setEnabled(enabled);
     }
 
     public static void main(String[] args) {
+        if (args.length > 0) {
+            TranslatorCli.main(args); // Headless batch mode, never touches AWT
+            return;
+        }
         new TranslatorApp(); // Create and run the application
     }
 }
@@ -0,0 +1,80 @@
+package itrans;
+
+/**
+ * Steers a {@link RateLimiter} by what the service answers: the rate is
+ * halved when the service throttles us and raised step by step while
+ * requests succeed, never above the configured ceiling. A {@code Retry-After}
+ * from the service pauses the limiter for that long.
+ */
+public class AdaptiveThrottle {
+    // Throttling answers within this window come from requests already in flight, count them once
+    private static final long DECREASE_WINDOW_NANOS = 1_000_000_000L;
+    private static final int SUCCESSES_PER_INCREASE = 20;
+
+    private final RateLimiter limiter;
+    private final double minRate;
+    private final double maxRate;
+    private long lastDecrease;
+    private int successes;
+    private long windowStarted = System.nanoTime();
+    private int windowSuccesses;
+
+    public AdaptiveThrottle(RateLimiter limiter, double minRate, double maxRate) {
+        this.limiter = limiter;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+    }
+
+    /**
+     * Creates a throttle that moves the limiter between {@code minRequestsPerSecond}
+     * and {@code maxRequestsPerSecond} of config.ini. The ceiling defaults to
+     * {@code requestsPerSecond}, so the rate only goes above what was
+     * configured when asked to.
+     */
+    public static AdaptiveThrottle fromConfig(RateLimiter limiter, TranslatorConfig config) {
+        double configured = limiter.getRate();
+        int max = config.getInt("maxRequestsPerSecond", 0);
+        return new AdaptiveThrottle(limiter, Math.max(0.1, config.getInt("minRequestsPerSecond", 1)),
+                max > 0 ? max : configured);
+    }
+
+    public synchronized void onSuccess() {
+        windowSuccesses++;
+        double rate = limiter.getRate();
+        if (rate >= maxRate || ++successes < SUCCESSES_PER_INCREASE) {
+            return;
+        }
+        successes = 0;
+        double step = Double.isInfinite(maxRate) ? Math.max(0.1, rate * 0.1) : Math.max(0.1, maxRate / 20);
+        limiter.setRate(Math.min(maxRate, rate + step));
+    }
+
+    /**
+     * Records that the service asked us to slow down.
+     *
+     * @param retryAfterMillis the wait the service asked for, 0 when it did not say
+     */
+    public synchronized void onThrottled(long retryAfterMillis) {
+        long now = System.nanoTime();
+        if (retryAfterMillis > 0) {
+            limiter.pause(retryAfterMillis);
+        }
+        successes = 0;
+        if (now - lastDecrease < DECREASE_WINDOW_NANOS && lastDecrease != 0) {
+            return;
+        }
+        double rate = limiter.getRate();
+        if (Double.isInfinite(rate)) {
+            // No limit yet, start from what actually got through
+            rate = windowSuccesses / Math.max(1e-3, (now - windowStarted) / 1e9);
+        }
+        limiter.setRate(Math.max(minRate, rate / 2));
+        lastDecrease = now;
+        windowStarted = now;
+        windowSuccesses = 0;
+    }
+
+    public RateLimiter getLimiter() {
+        return limiter;
+    }
+}
@@ -0,0 +1,146 @@
+package itrans;
+
+/**
+ * Stops every request for a while once the service keeps failing, so a job
+ * waits out an outage or a block instead of burning through its file list.
+ * <p>
+ * After {@code failureThreshold} transient failures in a row the breaker
+ * opens and callers of {@link #acquire()} wait. When the pause is over a
+ * single probe request is let through: if it succeeds everyone continues, if
+ * it fails the breaker opens again for twice as long. An outage longer than
+ * {@code maxPauseMillis} in total fails the waiting requests instead, while
+ * probes still go out at the end of each pause so the breaker closes again
+ * once the service is back.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final long maxPauseMillis;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long currentOpenMillis;
+    private long openUntil;
+    private long outageStarted;
+    private boolean probeInFlight;
+    private volatile JobLog log = new JobLog();
+
+    public CircuitBreaker(int failureThreshold, long openMillis, long maxPauseMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        this.maxPauseMillis = maxPauseMillis;
+        this.currentOpenMillis = openMillis;
+    }
+
+    /**
+     * Creates a breaker from the {@code circuitFailureThreshold},
+     * {@code circuitOpenMs} and {@code circuitMaxPauseMs} keys of config.ini.
+     */
+    public static CircuitBreaker fromConfig(TranslatorConfig config) {
+        return new CircuitBreaker(config.getInt("circuitFailureThreshold", 5),
+                config.getInt("circuitOpenMs", 15000), config.getInt("circuitMaxPauseMs", 300000));
+    }
+
+    /**
+     * Sets where pauses and recoveries are reported.
+     */
+    public void setLog(JobLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Times an ongoing outage from now on, so a new job waits for the service
+     * as long as the first one did instead of failing at once because an
+     * earlier job already gave up.
+     */
+    public synchronized void startJob() {
+        if (outageStarted != 0) {
+            outageStarted = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Blocks while the breaker is open. Throws when the service has been
+     * failing for longer than the maximum pause.
+     */
+    public synchronized void acquire() throws InterruptedException, TranslationException {
+        while (true) {
+            switch (state) {
+                case CLOSED:
+                    return;
+                case OPEN:
+                    long now = System.currentTimeMillis();
+                    if (now >= openUntil) {
+                        state = State.HALF_OPEN;
+                        probeInFlight = true;
+                        return;
+                    }
+                    if (now - outageStarted > maxPauseMillis) {
+                        throw new TranslationException("Translation service still failing after "
+                                + (now - outageStarted) / 1000 + " s, giving up", 0, false, 0);
+                    }
+                    wait(openUntil - now);
+                    break;
+                case HALF_OPEN:
+                    if (!probeInFlight) {
+                        probeInFlight = true;
+                        return;
+                    }
+                    wait();
+                    break;
+            }
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Translation service is answering again, resuming");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        currentOpenMillis = openMillis;
+        outageStarted = 0;
+        probeInFlight = false;
+        notifyAll();
+    }
+
+    /**
+     * Records a transient failure of a request let through by {@link #acquire()}.
+     */
+    public synchronized void onFailure() {
+        long now = System.currentTimeMillis();
+        if (state == State.HALF_OPEN) {
+            currentOpenMillis = Math.min(currentOpenMillis * 2, Math.max(openMillis, maxPauseMillis / 4));
+            open(now);
+        } else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+            outageStarted = now;
+            open(now);
+        }
+    }
+
+    /**
+     * Lets a request go without a verdict, for errors that say nothing about
+     * the health of the service.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && probeInFlight) {
+            probeInFlight = false;
+            notifyAll();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        probeInFlight = false;
+        openUntil = now + currentOpenMillis;
+        log.warn("Translation service keeps failing, pausing requests for " + currentOpenMillis / 1000 + " s");
+        notifyAll();
+    }
+}
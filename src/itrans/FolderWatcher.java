@@ -0,0 +1,234 @@
+package itrans;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps an output folder in step with an input folder while translators edit
+ * it. After a first run over the whole folder, changes to interface files are
+ * picked up through a {@link WatchService}; once the folder was quiet for
+ * {@code watchDebounceMs} of config.ini (300 by default), only the changed
+ * files are translated again and their mirrored output files rewritten, and
+ * files deleted from the input are deleted from the output.
+ * <p>
+ * Every run goes through the same engine and glossary, so connections, the
+ * rate limit and the translation memory stay warm between changes: the
+ * unchanged strings of an edited file come from the memory and only the
+ * edited ones are sent.
+ */
+public class FolderWatcher implements Closeable {
+    private final TranslationEngine engine;
+    private final Glossary glossary;
+    private final JobLog log;
+    private final Path inputFolder;
+    private final Path output;
+    private final Path outputFolder; // Absolute, changes below it are the job's own
+    private final Path stateFolder; // Likewise, the manifest and metrics report beside it
+    private final List<String> targetLanguages;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> folders = new HashMap<>();
+    private final ReentrantLock running = new ReentrantLock(); // Held while a job runs
+    private final AtomicInteger failedJobs = new AtomicInteger();
+    private volatile boolean closed;
+
+    public FolderWatcher(TranslationEngine engine, Glossary glossary, JobLog log, Path inputFolder, Path output,
+            List<String> targetLanguages) throws IOException {
+        if (!Files.isDirectory(inputFolder)) {
+            throw new IOException("Only an input folder can be watched: " + inputFolder.toAbsolutePath());
+        }
+        if (inputFolder.toAbsolutePath().normalize().startsWith(output.toAbsolutePath().normalize())) {
+            throw new IOException("The input folder must not be inside the output folder: " + inputFolder.toAbsolutePath());
+        }
+        if (targetLanguages.isEmpty()) {
+            throw new IllegalArgumentException("No target language");
+        }
+        this.engine = engine;
+        this.glossary = glossary;
+        this.log = log;
+        this.inputFolder = inputFolder;
+        this.output = output;
+        this.outputFolder = output.toAbsolutePath().normalize();
+        this.stateFolder = JobManifest.stateFolder(output);
+        this.targetLanguages = targetLanguages;
+        this.debounceMillis = engine.getConfig().getInt("watchDebounceMs", 300);
+        this.watchService = inputFolder.getFileSystem().newWatchService();
+    }
+
+    /**
+     * Translates the whole input folder, then every change, until
+     * {@link #close()} is called from another thread. A job that fails is
+     * logged and the folder is still watched.
+     *
+     * @param onRun receives the summaries of every job
+     */
+    public void run(Consumer<List<JobSummary>> onRun) throws IOException {
+        try {
+            register(inputFolder, null);
+            translate(null, onRun);
+            log.info("Watching " + inputFolder.toAbsolutePath() + " for changes");
+            while (!closed) {
+                Set<Path> changed = new TreeSet<>();
+                Set<Path> deleted = new TreeSet<>();
+                boolean overflow = collect(watchService.take(), changed, deleted);
+                // Editors save in several steps, wait until the folder is quiet
+                WatchKey key;
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(key, changed, deleted);
+                }
+
+                if (overflow) {
+                    log.info("Too many changes at once, checking the whole folder");
+                    translate(null, onRun);
+                    continue;
+                }
+                deleteOutputs(deleted);
+                if (!changed.isEmpty()) {
+                    log.info(changed.size() == 1 ? "Changed: " + changed.iterator().next() : changed.size() + " files changed");
+                    translate(changed, onRun);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Closed while waiting for a change
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns how many jobs failed as a whole, so that they never reached
+     * {@code onRun}.
+     */
+    public int getFailedJobs() {
+        return failedJobs.get();
+    }
+
+    /**
+     * Stops watching. A job in progress is finished first, so its output and
+     * manifest are left complete.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        running.lock();
+        running.unlock();
+    }
+
+    // Null relativePaths means the whole folder
+    private void translate(Set<Path> relativePaths, Consumer<List<JobSummary>> onRun) {
+        running.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            TranslationJob job = engine.createJob(glossary, log);
+            onRun.accept(relativePaths == null ? job.run(inputFolder, output, targetLanguages)
+                    : job.run(inputFolder, relativePaths, output, targetLanguages));
+        } catch (IOException | RuntimeException e) {
+            failedJobs.incrementAndGet();
+            log.error("Translation failed: " + e.getMessage());
+        } finally {
+            running.unlock();
+        }
+    }
+
+    // Returns true when events were lost and the folder has to be checked as a whole
+    private boolean collect(WatchKey key, Set<Path> changed, Set<Path> deleted) {
+        Path folder = folders.get(key);
+        boolean overflow = folder == null;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || folder == null) {
+                overflow = true;
+                continue;
+            }
+            Path path = folder.resolve((Path) event.context());
+            if (isOutput(path)) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    register(path, changed); // Its files may have arrived before it was watched
+                } catch (IOException e) {
+                    log.warn("Failed to watch " + path.toAbsolutePath() + ": " + e.getMessage());
+                }
+            } else if (path.toString().endsWith(".xml")) {
+                Path relativePath = inputFolder.relativize(path);
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    changed.remove(relativePath);
+                    deleted.add(relativePath);
+                } else {
+                    deleted.remove(relativePath);
+                    changed.add(relativePath);
+                }
+            }
+        }
+        if (!key.reset()) {
+            folders.remove(key);
+        }
+        return overflow;
+    }
+
+    // Watches start and every folder below it, adding the .xml files found to files unless that is null
+    private void register(Path start, Set<Path> files) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (isOutput(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                folders.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (files != null && file.toString().endsWith(".xml")) {
+                    files.add(inputFolder.relativize(file));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private boolean isOutput(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        return absolute.startsWith(outputFolder) || absolute.startsWith(stateFolder);
+    }
+
+    private void deleteOutputs(Set<Path> deleted) {
+        for (Path relativePath : deleted) {
+            for (String language : targetLanguages) {
+                Path file = TranslationJob.languageOutput(output, language, targetLanguages.size()).resolve(relativePath.toString());
+                try {
+                    if (Files.deleteIfExists(file)) {
+                        log.info("Deleted " + file.toAbsolutePath());
+                    }
+                } catch (IOException e) {
+                    log.error("Failed to delete " + file.toAbsolutePath() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package itrans;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Protected game terms. Every {@code excludedWords} entry found in a string is
+ * masked as {@code [index[word]]} before translation, and the masks are turned
+ * into the matching {@code replacedWords} entry afterwards.
+ * <p>
+ * The terms are compiled once into an Aho-Corasick automaton, so a string is
+ * masked in a single scan however long the glossary grows. Where terms overlap
+ * the leftmost, then longest, one wins, and a term only matches on word
+ * boundaries like {@code \bterm\b} would.
+ */
+public class Glossary {
+    // List of excluded words
+    private static final List<String> DEFAULT_EXCLUDED_WORDS = List.of(
+        "Arcane Sky", "Mirage Sky", "Astral Sky", "Shifting Sky", "Twilight Sky", "Royal Sky",
+        "Pious Sky", "Apex Sky", "Spiritual Adept", "Aware of Principle", "Aware of Harmony",
+        "Aware of Discord", "Aware of Coalescence", "Transcendent", "Enlightened One",
+        "Aware of Vacuity", "Aware of the Myriad", "Master of Harmony", "Celestial Sage",
+        "Aware of the Void", "Master of Discord", "Celestial Demon", "Chaotic Soul",
+        "Celestial Saint", "Try Out", "War Avatar", "Total Aptitute", "Perfect World", "Thigh Thickness",
+        "Astral Infusion", "Winged Elf", "Untamed Rising", "Arctic Warfare",
+        "Username", "Password", "Start", "Level", "Vitality", "Strength", "Magic", "Dexternity",
+        "Spirit", "Damage", "Attack", "Defense", "Soulforce", "Stealth", "Slaying",
+        "Warding", "Title", "Order", "Fashion", "Quest", "Flyer", "Codex", "Warsoul",
+        "Event", "Cross", "Squad", "Faction", "Private", "Trade", "Chat", "World",
+        "Horn", "Skill", "Skills", "Demon", "Sage", "Leadership", "Nuema", "Destroyer",
+        "Battle", "Longetivity", "Durability", "Soulprime", "Lifeprime", "infuse",
+        "Infuse", "Bestiary", "Pet", "Meridian", "Area", "Shop", "Star", "Point",
+        "Flyers", "Mount", "Utility", "Craft", "Auction", "Settings", "Game",
+        "Hotkeys", "Shortcut", "Default", "Horoscope", "Stargazing", "Starshift",
+        "Birthstar", "Fatestar", "Summon", "Luminance", "Shroud", "Corona", "Glyph",
+        "Cultivation", "Warrior", "Untamed", "Tideborn", "Earthguard", "Nightshade",
+        "Blademaster", "Wizard", "Psychic", "Venomancer", "Barbarian", "Assassin",
+        "Archer", "Cleric", "Seeker", "Mystic", "Duskblade", "Stormbringer", "Windwalker",
+        "Technician", "Edgerunner", "Class", "NOTICE", "Nation", "T.", "E.", "W.",
+        "H.", "U.", "N.", "Servers", "Server", "server", "Face", "Lips", "Transpar.",
+        "Embellish", "Bundle", "Hair", "Facial", "CrusThickness", "Soften", "Money", "CON",
+        "STR", "INT", "DEX", "Guild", "Rage", "pirate games", "Games"
+    );
+
+    // List of replaced words
+    private static final List<String> DEFAULT_REPLACED_WORDS = List.of(
+        "Arcane Sky", "Mirage Sky", "Astral Sky", "Shifting Sky", "Twilight Sky", "Royal Sky",
+        "Pious Sky", "Apex Sky", "Spiritual Adept", "Aware of Principle", "Aware of Harmony",
+        "Aware of Discord", "Aware of Coalescence", "Transcendent", "Enlightened One",
+        "Aware of Vacuity", "Aware of the Myriad", "Master of Harmony", "Celestial Sage",
+        "Aware of the Void", "Master of Discord", "Celestial Demon", "Chaotic Soul",
+        "Celestial Saint", "Coba", "War Avatar", "Total Aptitute", "Perfect World", "Tebal Paha",
+        "Astral Infusion", "Peri", "Kebangkitan Siluman", "Perang Arctic",
+        "Username", "Password", "Masuk", "Level", "Vitality", "Strength", "Magic", "Dexternity",
+        "Spirit", "Damage", "Attack", "Defense", "Soulforce", "Stealth", "Slaying",
+        "Warding", "Title", "Order", "Busana", "Quest", "Flyer", "Codex", "Warsoul",
+        "Event", "Cross", "Party", "Guild", "Private", "Trade", "Chat", "World",
+        "Horn", "Skill", "Skills", "Demon", "Sage", "Leadership", "Nuema", "Destroyer",
+        "Battle", "Longetivity", "Durability", "Soulprime", "Lifeprime", "infuse",
+        "Infuse", "Bestiary", "Pet", "Meridian", "Area", "Shop", "Star", "Point",
+        "Flyers", "Mount", "Utility", "Craft", "Auction", "Settings", "Game",
+        "Hotkeys", "Shortcut", "Default", "Horoscope", "Stargazing", "Starshift",
+        "Birthstar", "Fatestar", "Summon", "Luminance", "Shroud", "Corona", "Glyph",
+        "Kultivasi", "Warrior", "Siluman", "Duyung", "Dewa", "Nightshade",
+        "Warrior", "Mage", "Psychic", "Foxlady", "Bestial", "Assassin",
+        "Archer", "Priest", "Seeker", "Mystic", "Duskblade", "Stormbringer", "Windwalker",
+        "Technician", "Edgerunner", "Job", "PERHATIAN", "Nation", "Du.", "De.", "P.",
+        "M.", "S.", "N.", "Servers", "Server", "server", "Wajah", "Lips", "Transparasi",
+        "Hiasan", "Ikat", "Rambut", "Rias Wajah", "Tebal Betis", "Lembut", "Koin", "CON",
+        "STR", "INT", "DEX", "Guild", "Kritikal", "monetisasi game", "Game"
+    );
+
+    private final List<String> excludedWords;
+    private final List<String> replacedWords;
+    private final Automaton automaton;
+
+    public Glossary(List<String> excludedWords, List<String> replacedWords) {
+        this.excludedWords = List.copyOf(excludedWords);
+        this.replacedWords = List.copyOf(replacedWords);
+        this.automaton = new Automaton(this.excludedWords);
+    }
+
+    public static Glossary defaults() {
+        return new Glossary(DEFAULT_EXCLUDED_WORDS, DEFAULT_REPLACED_WORDS);
+    }
+
+    /**
+     * Builds the glossary from the comma separated {@code excludedWords} and
+     * {@code replacedWords} keys of config.ini, using the built-in lists when
+     * the keys are missing.
+     */
+    public static Glossary fromConfig(TranslatorConfig config) {
+        String excluded = config.getString("excludedWords", null);
+        if (excluded == null) {
+            return defaults();
+        }
+        return new Glossary(splitList(excluded), splitList(config.getString("replacedWords", "")));
+    }
+
+    private static List<String> splitList(String value) {
+        List<String> words = new ArrayList<>();
+        for (String word : value.split(",")) {
+            words.add(word.trim());
+        }
+        return words;
+    }
+
+    /**
+     * Returns a hash of both word lists, so output produced with another
+     * glossary can be recognized.
+     */
+    public String fingerprint() {
+        String words = String.join("\n", excludedWords) + "\u0000" + String.join("\n", replacedWords);
+        return InterfaceScan.hash(words.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public List<String> getExcludedWords() {
+        return excludedWords;
+    }
+
+    public List<String> getReplacedWords() {
+        return replacedWords;
+    }
+
+    /**
+     * Replaces protected terms with placeholders the translation service leaves alone.
+     */
+    public String mask(String originalText) {
+        List<int[]> matches = automaton.findAll(originalText);
+        if (matches.isEmpty()) {
+            return originalText;
+        }
+
+        StringBuilder masked = new StringBuilder(originalText.length() + matches.size() * 8);
+        int copied = 0;
+        for (int[] match : matches) {
+            int start = match[0];
+            int end = match[1];
+            int index = match[2];
+            masked.append(originalText, copied, start);
+            masked.append('[').append(index + 1).append('[').append(excludedWords.get(index)).append("]]");
+            copied = end;
+        }
+        masked.append(originalText, copied, originalText.length());
+        return masked.toString();
+    }
+
+    /**
+     * Turns the placeholders of {@link #mask(String)} back into the protected
+     * terms they hide, giving the original text.
+     */
+    public String unmask(String maskedText) {
+        int open = maskedText.indexOf('[');
+        if (open < 0) {
+            return maskedText;
+        }
+
+        StringBuilder original = new StringBuilder(maskedText.length());
+        int copied = 0;
+        for (; open >= 0; open = maskedText.indexOf('[', open + 1)) {
+            int digitsEnd = open + 1;
+            while (digitsEnd < maskedText.length() && digitsEnd - open <= 9 && Character.isDigit(maskedText.charAt(digitsEnd))) {
+                digitsEnd++;
+            }
+            if (digitsEnd == open + 1 || digitsEnd >= maskedText.length() || maskedText.charAt(digitsEnd) != '[') {
+                continue;
+            }
+            int index = Integer.parseInt(maskedText, open + 1, digitsEnd, 10) - 1;
+            if (index < 0 || index >= excludedWords.size()) {
+                continue;
+            }
+            String word = excludedWords.get(index);
+            if (maskedText.startsWith(word, digitsEnd + 1) && maskedText.startsWith("]]", digitsEnd + 1 + word.length())) {
+                original.append(maskedText, copied, open).append(word);
+                copied = digitsEnd + 1 + word.length() + 2;
+                open = copied - 1;
+            }
+        }
+        return original.append(maskedText, copied, maskedText.length()).toString();
+    }
+
+    /**
+     * Adds the number of times each excluded word occurs in {@code text} to
+     * {@code counts}, at the index of the word, and returns the total.
+     */
+    public int countTerms(String text, int[] counts) {
+        List<int[]> matches = automaton.findAll(text);
+        for (int[] match : matches) {
+            counts[match[2]]++;
+        }
+        return matches.size();
+    }
+
+    /**
+     * Turns the placeholders in a translated string into their replacement words.
+     * Placeholders the translation service mangled, such as {@code [[word]]} or
+     * a stray {@code word]]}, are dropped.
+     */
+    public String restore(String translatedText) {
+        if (translatedText.indexOf(']') < 0) {
+            return translatedText;
+        }
+
+        int length = translatedText.length();
+        StringBuilder restored = new StringBuilder(length);
+        int i = 0;
+        while (i < length) {
+            char c = translatedText.charAt(i);
+            if (c == '[') {
+                int digitsEnd = i + 1;
+                while (digitsEnd < length && digitsEnd - i <= 9 && Character.isDigit(translatedText.charAt(digitsEnd))) {
+                    digitsEnd++;
+                }
+                if (digitsEnd < length && translatedText.charAt(digitsEnd) == '[') {
+                    int close = translatedText.indexOf("]]", digitsEnd + 1);
+                    if (close >= 0) {
+                        if (digitsEnd > i + 1) {
+                            // [index[word]] becomes its replacement
+                            int index = Integer.parseInt(translatedText, i + 1, digitsEnd, 10) - 1;
+                            restored.append(replacement(index));
+                        }
+                        // [[...]] is removed along with its contents
+                        i = close + 2;
+                        continue;
+                    }
+                }
+            } else if (c == ']' && i + 1 < length && translatedText.charAt(i + 1) == ']') {
+                // Remove words ending with ]]
+                int keep = restored.length();
+                while (keep > 0 && !Character.isWhitespace(restored.charAt(keep - 1)) && restored.charAt(keep - 1) != '[') {
+                    keep--;
+                }
+                restored.setLength(keep);
+                i += 2;
+                continue;
+            }
+            restored.append(c);
+            i++;
+        }
+        return restored.toString();
+    }
+
+    private String replacement(int index) {
+        if (index >= 0 && index < replacedWords.size()) {
+            return replacedWords.get(index);
+        }
+        return index >= 0 && index < excludedWords.size() ? excludedWords.get(index) : "";
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * Multi-pattern matcher over the excluded words. Transitions are kept as
+     * sorted character arrays per state and searched with binary search.
+     */
+    private static final class Automaton {
+        private final char[][] labels;
+        private final int[][] targets;
+        private final int[] fail;
+        private final int[] output; // Index of the word ending in this state, -1 when none
+        private final int[] outputLink; // Nearest state on the fail chain with an output, 0 when none
+        private final int[] depth;
+
+        Automaton(List<String> words) {
+            List<Map<Character, Integer>> children = new ArrayList<>();
+            List<Integer> outputs = new ArrayList<>();
+            List<Integer> depths = new ArrayList<>();
+            children.add(new HashMap<>());
+            outputs.add(-1);
+            depths.add(0);
+            for (int i = 0; i < words.size(); i++) {
+                String word = words.get(i);
+                if (word.isEmpty()) {
+                    continue;
+                }
+                int state = 0;
+                for (int k = 0; k < word.length(); k++) {
+                    Integer next = children.get(state).get(word.charAt(k));
+                    if (next == null) {
+                        next = children.size();
+                        children.add(new HashMap<>());
+                        outputs.add(-1);
+                        depths.add(k + 1);
+                        children.get(state).put(word.charAt(k), next);
+                    }
+                    state = next;
+                }
+                if (outputs.get(state) < 0) {
+                    outputs.set(state, i); // The first entry of a duplicated word wins
+                }
+            }
+
+            int states = children.size();
+            labels = new char[states][];
+            targets = new int[states][];
+            output = new int[states];
+            depth = new int[states];
+            for (int state = 0; state < states; state++) {
+                List<Map.Entry<Character, Integer>> edges = new ArrayList<>(children.get(state).entrySet());
+                edges.sort(Map.Entry.comparingByKey());
+                labels[state] = new char[edges.size()];
+                targets[state] = new int[edges.size()];
+                for (int e = 0; e < edges.size(); e++) {
+                    labels[state][e] = edges.get(e).getKey();
+                    targets[state][e] = edges.get(e).getValue();
+                }
+                output[state] = outputs.get(state);
+                depth[state] = depths.get(state);
+            }
+
+            // Breadth-first pass for the failure and output links
+            fail = new int[states];
+            outputLink = new int[states];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int child : targets[0]) {
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (int e = 0; e < labels[state].length; e++) {
+                    char c = labels[state][e];
+                    int child = targets[state][e];
+                    int f = fail[state];
+                    while (f != 0 && next(f, c) < 0) {
+                        f = fail[f];
+                    }
+                    int target = next(f, c);
+                    fail[child] = target < 0 || target == child ? 0 : target;
+                    outputLink[child] = output[fail[child]] >= 0 ? fail[child] : outputLink[fail[child]];
+                    queue.add(child);
+                }
+            }
+        }
+
+        private int next(int state, char c) {
+            int e = Arrays.binarySearch(labels[state], c);
+            return e < 0 ? -1 : targets[state][e];
+        }
+
+        /**
+         * Returns {start, end, wordIndex} of the leftmost-longest, non-overlapping
+         * matches that sit on word boundaries, in text order.
+         */
+        List<int[]> findAll(String text) {
+            List<int[]> candidates = null;
+            int state = 0;
+            for (int pos = 0; pos < text.length(); pos++) {
+                char c = text.charAt(pos);
+                int target = next(state, c);
+                while (target < 0 && state != 0) {
+                    state = fail[state];
+                    target = next(state, c);
+                }
+                state = target < 0 ? 0 : target;
+
+                for (int match = output[state] >= 0 ? state : outputLink[state]; match != 0; match = outputLink[match]) {
+                    int start = pos + 1 - depth[match];
+                    if (isBoundary(text, start) && isBoundary(text, pos + 1)) {
+                        if (candidates == null) {
+                            candidates = new ArrayList<>();
+                        }
+                        candidates.add(new int[] {start, pos + 1, output[match]});
+                    }
+                }
+            }
+            if (candidates == null) {
+                return List.of();
+            }
+
+            candidates.sort(Comparator.<int[]>comparingInt(m -> m[0]).thenComparingInt(m -> -m[1]));
+            List<int[]> matches = new ArrayList<>(candidates.size());
+            int end = 0;
+            for (int[] candidate : candidates) {
+                if (candidate[0] >= end) {
+                    matches.add(candidate);
+                    end = candidate[1];
+                }
+            }
+            return matches;
+        }
+
+        private static boolean isBoundary(String text, int pos) {
+            boolean before = pos > 0 && isWordChar(text.charAt(pos - 1));
+            boolean after = pos < text.length() && isWordChar(text.charAt(pos));
+            return before != after;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package itrans;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Backend for the free Google Translate endpoint. A single {@link HttpClient}
+ * is kept for the lifetime of the backend so connections (and their TLS
+ * sessions) are reused between strings instead of being opened per request.
+ */
+public class GoogleTranslationBackend implements TranslationBackend {
+    public static final String DEFAULT_ENDPOINT = "https://translate.googleapis.com/translate_a/single";
+
+    private final HttpClient client;
+    private final String endpoint;
+    private final Duration readTimeout;
+
+    public GoogleTranslationBackend(String endpoint, Duration connectTimeout, Duration readTimeout) {
+        this.endpoint = endpoint;
+        this.readTimeout = readTimeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Creates the backend from the {@code endpoint}, {@code connectTimeoutMs} and
+     * {@code readTimeoutMs} keys of config.ini. Point {@code endpoint} at a
+     * {@link MockTranslationServer} to run without the network.
+     */
+    public static GoogleTranslationBackend fromConfig(TranslatorConfig config) {
+        return new GoogleTranslationBackend(
+                config.getString("endpoint", DEFAULT_ENDPOINT),
+                Duration.ofMillis(config.getInt("connectTimeoutMs", 10000)),
+                Duration.ofMillis(config.getInt("readTimeoutMs", 30000)));
+    }
+
+    @Override
+    public String translate(String text, String targetLanguage) throws IOException {
+        String query = "?client=gtx&sl=auto&tl=" + URLEncoder.encode(targetLanguage, StandardCharsets.UTF_8)
+                + "&dt=t&q=" + URLEncoder.encode(text, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint + query))
+                .timeout(readTimeout)
+                .header("Accept-Charset", "UTF-8")
+                .GET()
+                .build();
+
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Translation request interrupted");
+        }
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw TranslationException.forStatus(response.statusCode(),
+                        parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null)), endpoint);
+            }
+            return TranslationResponseParser.parse(body);
+        }
+    }
+
+    /**
+     * Reads a {@code Retry-After} header, given either in seconds or as an
+     * HTTP date, as milliseconds from now. Returns 0 when there is none.
+     */
+    static long parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            // Not seconds, try a date
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package itrans;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * The raw bytes of an interface file together with their encoding. The file
+ * is never decoded as a whole: the {@code String="..."} values are found by
+ * comparing code units in place, only the values themselves are turned into
+ * strings, and the bytes around them can be copied to the output unchanged.
+ * <p>
+ * The encoding comes from the byte order mark (UTF-16LE, UTF-16BE or UTF-8).
+ * Without one it is guessed from how the first character is stored, and the
+ * client's UTF-16LE is assumed when that does not tell.
+ * <p>
+ * Files are read onto the heap in one piece, never memory-mapped: Windows
+ * keeps a mapped file locked until the mapping is garbage collected, so the
+ * user's next save of a watched input, or a job writing over its own input
+ * or an earlier output, would fail.
+ */
+public final class InterfaceFile implements Closeable {
+    private final ByteBuffer bytes;
+    private final Charset charset;
+    private final int unitSize;
+    private final boolean bigEndian;
+    private final int bomLength;
+
+    private InterfaceFile(ByteBuffer bytes) {
+        this.bytes = bytes;
+        int b0 = bytes.limit() > 0 ? bytes.get(0) & 0xFF : -1;
+        int b1 = bytes.limit() > 1 ? bytes.get(1) & 0xFF : -1;
+        int b2 = bytes.limit() > 2 ? bytes.get(2) & 0xFF : -1;
+        if (b0 == 0xFF && b1 == 0xFE) {
+            charset = StandardCharsets.UTF_16LE;
+            bomLength = 2;
+        } else if (b0 == 0xFE && b1 == 0xFF) {
+            charset = StandardCharsets.UTF_16BE;
+            bomLength = 2;
+        } else if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+            charset = StandardCharsets.UTF_8;
+            bomLength = 3;
+        } else if (b0 == 0 && b1 > 0) {
+            charset = StandardCharsets.UTF_16BE;
+            bomLength = 0;
+        } else if (b0 > 0 && b1 > 0) {
+            charset = StandardCharsets.UTF_8;
+            bomLength = 0;
+        } else {
+            charset = StandardCharsets.UTF_16LE;
+            bomLength = 0;
+        }
+        unitSize = charset == StandardCharsets.UTF_8 ? 1 : 2;
+        bigEndian = charset == StandardCharsets.UTF_16BE;
+    }
+
+    public static InterfaceFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + path);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read until full
+            }
+            return new InterfaceFile(buffer.flip());
+        }
+    }
+
+    /**
+     * Wraps bytes that are already in memory.
+     */
+    public static InterfaceFile wrap(byte[] content) {
+        return new InterfaceFile(ByteBuffer.wrap(content));
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Bytes of code unit: 1 for UTF-8, 2 for UTF-16.
+     */
+    public int getUnitSize() {
+        return unitSize;
+    }
+
+    public int getBomLength() {
+        return bomLength;
+    }
+
+    public int size() {
+        return bytes.limit();
+    }
+
+    /**
+     * Returns the code unit at byte {@code position}.
+     */
+    public int unitAt(int position) {
+        if (unitSize == 1) {
+            return bytes.get(position) & 0xFF;
+        }
+        int first = bytes.get(position) & 0xFF;
+        int second = bytes.get(position + 1) & 0xFF;
+        return bigEndian ? first << 8 | second : second << 8 | first;
+    }
+
+    /**
+     * Decodes the bytes from {@code start} to {@code end}.
+     */
+    public String decode(int start, int end) {
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + start, end - start, charset);
+        }
+        byte[] slice = new byte[end - start];
+        bytes.get(start, slice);
+        return new String(slice, charset);
+    }
+
+    /**
+     * Encodes text the same way as this file.
+     */
+    public byte[] encode(String text) {
+        return text.getBytes(charset);
+    }
+
+    /**
+     * Returns a read-only view of {@code length} bytes from {@code position}.
+     */
+    public ByteBuffer slice(int position, int length) {
+        return bytes.slice(position, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Copies {@code length} bytes from {@code position} into {@code target}
+     * at its position, and advances it.
+     */
+    public void copyTo(int position, int length, ByteBuffer target) {
+        target.put(target.position(), bytes, position, length);
+        target.position(target.position() + length);
+    }
+
+    /**
+     * Copies a byte range to {@code out}.
+     */
+    public void transferTo(int position, int length, WritableByteChannel out) throws IOException {
+        ByteBuffer range = slice(position, length);
+        while (range.hasRemaining()) {
+            out.write(range);
+        }
+    }
+
+    /**
+     * Returns the SHA-256 of the file bytes in hex.
+     */
+    public String hash() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytes.duplicate().clear());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nothing is held open once the file is read
+    }
+}
@@ -0,0 +1,218 @@
+package itrans;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * First phase of a job: every interface .xml of the input folder or archive
+ * is read once, its {@code String="..."} values are masked with the glossary
+ * and the unique masked texts are collected together with where they occur. The
+ * second phase then translates each unique text only once.
+ * <p>
+ * Files are searched as bytes in their own encoding (see {@link InterfaceFile});
+ * only the attribute values are decoded.
+ */
+public class InterfaceScan {
+    private static final char[] STRING_ATTRIBUTE = "String=\"".toCharArray();
+
+    /**
+     * One {@code String="..."} attribute: the byte offsets where its value
+     * starts and ends in the file, and the masked, trimmed value.
+     */
+    public record Segment(int start, int end, String text) {
+    }
+
+    /**
+     * The position of a unique text inside the scanned tree.
+     */
+    public record Occurrence(SourceFile file, int index) {
+    }
+
+    /**
+     * An interface file and the strings found in it, in document order.
+     */
+    public static final class SourceFile {
+        private final Path input;
+        private final Path relativePath;
+        private final String hash;
+        private final int size;
+        private final List<Segment> segments;
+
+        SourceFile(Path input, Path relativePath, String hash, int size, List<Segment> segments) {
+            this.input = input;
+            this.relativePath = relativePath;
+            this.hash = hash;
+            this.size = size;
+            this.segments = segments;
+        }
+
+        /**
+         * Where the file was read from, for messages.
+         */
+        public Path getInput() {
+            return input;
+        }
+
+        public Path getRelativePath() {
+            return relativePath;
+        }
+
+        /**
+         * SHA-256 of the file bytes, in hex.
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * Size of the scanned file in bytes, used to notice files changed since the scan.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        public List<Segment> getSegments() {
+            return segments;
+        }
+    }
+
+    private final List<SourceFile> files = new ArrayList<>();
+    private final Map<String, List<Occurrence>> uniqueTexts = new LinkedHashMap<>();
+    private int segmentCount;
+    private int skippedCount;
+
+    private InterfaceScan() {
+    }
+
+    /**
+     * Scans every .xml file of {@code tree} except those for which
+     * {@code skip} returns true when given the relative path and content hash.
+     * Skipped files are only hashed, their strings are not collected. Files
+     * are read and masked concurrently, but the result is in path order no
+     * matter which file finishes first. Read and mask times are added to
+     * {@code metrics}.
+     */
+    public static InterfaceScan scan(InterfaceTree tree, Glossary glossary, ParallelExecutor executor,
+            BiPredicate<Path, String> skip, JobMetrics metrics) throws IOException {
+        Map<String, String> masked = new ConcurrentHashMap<>(); // The same raw string is masked only once
+        List<SourceFile> files = executor.map(tree.list(), relativePath -> {
+            long started = System.nanoTime();
+            try (InterfaceFile file = tree.read(relativePath)) {
+                String hash = file.hash();
+                long read = System.nanoTime();
+                metrics.addPhaseTime(JobMetrics.Phase.READ, read - started);
+                if (skip.test(relativePath, hash)) {
+                    return null;
+                }
+
+                List<Segment> segments = extract(file, raw -> masked.computeIfAbsent(raw, glossary::mask));
+                metrics.addPhaseTime(JobMetrics.Phase.MASK, System.nanoTime() - read);
+                return new SourceFile(tree.describe(relativePath), relativePath, hash, file.size(),
+                        Collections.unmodifiableList(segments));
+            }
+        });
+
+        InterfaceScan scan = new InterfaceScan();
+        for (SourceFile file : files) {
+            if (file == null) {
+                scan.skippedCount++;
+                continue;
+            }
+            List<Segment> segments = file.getSegments();
+            scan.files.add(file);
+            for (int i = 0; i < segments.size(); i++) {
+                scan.uniqueTexts.computeIfAbsent(segments.get(i).text(), k -> new ArrayList<>()).add(new Occurrence(file, i));
+            }
+            scan.segmentCount += segments.size();
+        }
+        return scan;
+    }
+
+    /**
+     * Finds every {@code String="..."} value of one file, trimming each value
+     * and passing it through {@code mask}. Like the pattern
+     * {@code String="(.*?)"}, a value never spans a line break.
+     */
+    public static List<Segment> extract(InterfaceFile file, UnaryOperator<String> mask) {
+        int unit = file.getUnitSize();
+        int limit = file.getBomLength() + (file.size() - file.getBomLength()) / unit * unit;
+        int attributeBytes = STRING_ATTRIBUTE.length * unit;
+        List<Segment> segments = new ArrayList<>();
+        int position = file.getBomLength();
+        while (position + attributeBytes <= limit) {
+            if (!isStringAttribute(file, position)) {
+                position += unit;
+                continue;
+            }
+            int start = position + attributeBytes;
+            int end = start;
+            while (end < limit) {
+                int c = file.unitAt(end);
+                if (c == '"' || c == '\n' || c == '\r') {
+                    break;
+                }
+                end += unit;
+            }
+            if (end < limit && file.unitAt(end) == '"') {
+                segments.add(new Segment(start, end, mask.apply(file.decode(start, end).trim())));
+                end += unit;
+            }
+            position = end;
+        }
+        return segments;
+    }
+
+    /**
+     * Returns the SHA-256 of {@code bytes} in hex.
+     */
+    public static String hash(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static boolean isStringAttribute(InterfaceFile file, int position) {
+        int unit = file.getUnitSize();
+        for (int i = 0; i < STRING_ATTRIBUTE.length; i++) {
+            if (file.unitAt(position + i * unit) != STRING_ATTRIBUTE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<SourceFile> getFiles() {
+        return files;
+    }
+
+    /**
+     * Unique masked texts in first-seen order, each with all of its occurrences.
+     */
+    public Map<String, List<Occurrence>> getUniqueTexts() {
+        return uniqueTexts;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Number of files left out by the skip predicate.
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+}
@@ -0,0 +1,79 @@
+package itrans;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Where a job reads its interface files from: a folder of extracted files or
+ * an interfaces.pck archive. Files are addressed by their path relative to
+ * the root of the tree.
+ */
+public interface InterfaceTree {
+
+    /**
+     * Returns the relative paths of the .xml files in path order.
+     */
+    List<Path> list() throws IOException;
+
+    InterfaceFile read(Path relativePath) throws IOException;
+
+    /**
+     * Returns the path to show for a file in messages.
+     */
+    Path describe(Path relativePath);
+
+    /**
+     * The .xml files below {@code root}.
+     */
+    static InterfaceTree folder(Path root) {
+        return new InterfaceTree() {
+            @Override
+            public List<Path> list() throws IOException {
+                try (Stream<Path> walk = Files.walk(root)) {
+                    return walk.filter(path -> path.toString().endsWith(".xml")).sorted()
+                            .map(root::relativize).collect(Collectors.toList());
+                }
+            }
+
+            @Override
+            public InterfaceFile read(Path relativePath) throws IOException {
+                return InterfaceFile.open(root.resolve(relativePath.toString()));
+            }
+
+            @Override
+            public Path describe(Path relativePath) {
+                return root.resolve(relativePath.toString()).toAbsolutePath();
+            }
+        };
+    }
+
+    /**
+     * Only the listed files below {@code root}, given relative to it; those
+     * that are not .xml files or no longer exist are left out.
+     */
+    static InterfaceTree files(Path root, Collection<Path> relativePaths) {
+        InterfaceTree folder = folder(root);
+        return new InterfaceTree() {
+            @Override
+            public List<Path> list() {
+                return relativePaths.stream().filter(path -> path.toString().endsWith(".xml")
+                        && Files.isRegularFile(root.resolve(path.toString()))).distinct().sorted().collect(Collectors.toList());
+            }
+
+            @Override
+            public InterfaceFile read(Path relativePath) throws IOException {
+                return folder.read(relativePath);
+            }
+
+            @Override
+            public Path describe(Path relativePath) {
+                return folder.describe(relativePath);
+            }
+        };
+    }
+}
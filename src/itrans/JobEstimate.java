@@ -0,0 +1,84 @@
+package itrans;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What a job would do, worked out by {@link TranslationJob#estimate} without
+ * sending a single request.
+ *
+ * @param strings strings in the files that would be translated
+ * @param glossaryStrings unique strings that contain at least one glossary term
+ * @param glossaryTerms how often each glossary term occurs in the unique strings, most frequent first
+ * @param scanMillis time the dry run took to read and mask the input, about what the real job spends on it
+ * @param latencyMillis expected time of one request
+ * @param latencySource where the latency comes from: {@code measured} by an earlier job of this session,
+ *                      the {@code report} of the last run in the output folder, or {@code configured}
+ * @param etaMillis expected duration of the whole job
+ */
+public record JobEstimate(int files, int strings, int uniqueStrings, int glossaryStrings, Map<String, Integer> glossaryTerms,
+        List<Language> languages, long scanMillis, double latencyMillis, String latencySource, long etaMillis) {
+
+    /**
+     * The part of the job for one target language.
+     *
+     * @param uniqueStrings unique strings of the files still to translate into this language
+     * @param reusedStrings those of them the earlier version translated, see {@link PreviousTranslation}
+     * @param cachedStrings those of them the translation memory already holds
+     * @param keptStrings those of them the {@link SkipFilter} keeps as they are
+     * @param characters characters left to send
+     * @param requests requests left after batching
+     * @param savedRequests requests the kept strings would have taken
+     */
+    public record Language(String language, int files, int skippedFiles, int uniqueStrings, int reusedStrings,
+            int cachedStrings, int keptStrings, long characters, int requests, int savedRequests) {
+    }
+
+    public int requests() {
+        int requests = 0;
+        for (Language language : languages) {
+            requests += language.requests();
+        }
+        return requests;
+    }
+
+    /**
+     * Share of the unique strings that contain a glossary term.
+     */
+    public double glossaryHitRate() {
+        return uniqueStrings == 0 ? 0 : (double) glossaryStrings / uniqueStrings;
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"files\":").append(files)
+                .append(",\"strings\":").append(strings)
+                .append(",\"uniqueStrings\":").append(uniqueStrings)
+                .append(",\"requests\":").append(requests())
+                .append(",\"glossary\":{\"strings\":").append(glossaryStrings)
+                .append(",\"hitRate\":").append(String.format(Locale.ROOT, "%.4f", glossaryHitRate()))
+                .append(",\"terms\":{");
+        int t = 0;
+        for (Map.Entry<String, Integer> term : glossaryTerms.entrySet()) {
+            json.append(t++ > 0 ? "," : "").append('"').append(Json.escape(term.getKey())).append("\":").append(term.getValue());
+        }
+        json.append("}},\"languages\":[");
+        for (int i = 0; i < languages.size(); i++) {
+            Language language = languages.get(i);
+            json.append(i > 0 ? "," : "").append("{\"language\":\"").append(Json.escape(language.language()))
+                    .append("\",\"files\":").append(language.files())
+                    .append(",\"skippedFiles\":").append(language.skippedFiles())
+                    .append(",\"uniqueStrings\":").append(language.uniqueStrings())
+                    .append(",\"reusedStrings\":").append(language.reusedStrings())
+                    .append(",\"cachedStrings\":").append(language.cachedStrings())
+                    .append(",\"keptStrings\":").append(language.keptStrings())
+                    .append(",\"characters\":").append(language.characters())
+                    .append(",\"requests\":").append(language.requests())
+                    .append(",\"savedRequests\":").append(language.savedRequests()).append('}');
+        }
+        return json.append("],\"scanMs\":").append(scanMillis)
+                .append(",\"latencyMs\":").append(String.format(Locale.ROOT, "%.1f", latencyMillis))
+                .append(",\"latencySource\":\"").append(latencySource)
+                .append("\",\"etaMs\":").append(etaMillis).append('}').toString();
+    }
+}
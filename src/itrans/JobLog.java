@@ -0,0 +1,54 @@
+package itrans;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Log of a job, fanned out to any number of sinks that each have their own
+ * verbosity. Messages below every sink's level are dropped before they are
+ * even built by callers that check {@link #isEnabled(LogLevel)}.
+ */
+public class JobLog {
+    private record Target(LogLevel level, LogSink sink) {
+    }
+
+    private final List<Target> targets = new CopyOnWriteArrayList<>();
+
+    public JobLog addSink(LogLevel level, LogSink sink) {
+        targets.add(new Target(level, sink));
+        return this;
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        for (Target target : targets) {
+            if (target.level().includes(level)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void log(LogLevel level, String message) {
+        for (Target target : targets) {
+            if (target.level().includes(level)) {
+                target.sink().write(level, message);
+            }
+        }
+    }
+
+    public void error(String message) {
+        log(LogLevel.ERROR, message);
+    }
+
+    public void warn(String message) {
+        log(LogLevel.WARN, message);
+    }
+
+    public void info(String message) {
+        log(LogLevel.INFO, message);
+    }
+
+    public void debug(String message) {
+        log(LogLevel.DEBUG, message);
+    }
+}
@@ -0,0 +1,184 @@
+package itrans;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Record of finished work kept beside the output folder, in its
+ * {@link #stateFolder(Path) state folder}, so an interrupted job can be
+ * resumed and a re-run only touches files that changed.
+ * <p>
+ * Each line holds the state, target language, input hash, glossary hash and
+ * relative path of one output file. Updates are appended as they happen, the
+ * last line for a file wins, and the file is compacted when the job closes it.
+ */
+public class JobManifest implements Closeable {
+    public static final String FILE_NAME = "manifest.tsv";
+    private static final String LEGACY_FILE_NAME = ".itrans-manifest.tsv"; // In the output folder, where earlier versions kept it
+
+    /**
+     * Completion state of one output file.
+     */
+    public enum State {
+        PENDING, DONE
+    }
+
+    private record Entry(State state, String language, String inputHash, String glossaryHash) {
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final BufferedWriter writer; // Null when only read
+
+    private JobManifest(Path file, boolean readOnly) throws IOException {
+        this.file = file;
+        if (Files.isRegularFile(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t", 5);
+                if (fields.length == 5) {
+                    try {
+                        entries.put(key(fields[4], fields[1]), new Entry(State.valueOf(fields[0]), fields[1], fields[2], fields[3]));
+                    } catch (IllegalArgumentException e) {
+                        // Skip a line from an unknown version
+                    }
+                }
+            }
+        }
+        if (readOnly) {
+            writer = null;
+            return;
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Returns the folder that holds what the tool keeps about
+     * {@code outputFolder}: its manifest and metrics report. It sits beside
+     * the output folder and is named after it, {@code interfaces.itrans} for
+     * {@code interfaces}, so the output folder can be repacked as it is.
+     */
+    public static Path stateFolder(Path outputFolder) {
+        Path folder = outputFolder.toAbsolutePath().normalize();
+        return folder.getFileName() == null ? folder.resolve(".itrans")
+                : folder.resolveSibling(folder.getFileName() + ".itrans");
+    }
+
+    /**
+     * Opens the manifest of {@code outputFolder}, creating it when needed. A
+     * manifest an earlier version left inside the output folder is moved to
+     * the state folder.
+     */
+    public static JobManifest open(Path outputFolder) throws IOException {
+        Path file = stateFolder(outputFolder).resolve(FILE_NAME);
+        Path legacy = outputFolder.resolve(LEGACY_FILE_NAME);
+        if (Files.isRegularFile(legacy)) {
+            if (Files.exists(file)) {
+                Files.delete(legacy);
+            } else {
+                Files.createDirectories(file.getParent());
+                Files.move(legacy, file);
+            }
+        }
+        return new JobManifest(file, false);
+    }
+
+    /**
+     * Reads the manifest of {@code outputFolder} without changing anything on
+     * disk; an output folder without one reads as empty. The result can only
+     * be queried.
+     */
+    public static JobManifest read(Path outputFolder) throws IOException {
+        Path file = stateFolder(outputFolder).resolve(FILE_NAME);
+        Path legacy = outputFolder.resolve(LEGACY_FILE_NAME);
+        return new JobManifest(Files.exists(file) || !Files.isRegularFile(legacy) ? file : legacy, true);
+    }
+
+    /**
+     * Returns true when the file was completed earlier from the same input with
+     * the same language and glossary.
+     */
+    public synchronized boolean isUpToDate(Path relativePath, String language, String inputHash, String glossaryHash) {
+        Entry entry = entries.get(key(relativePath.toString(), language));
+        return entry != null && entry.state() == State.DONE
+                && entry.inputHash().equals(inputHash) && entry.glossaryHash().equals(glossaryHash);
+    }
+
+    /**
+     * Returns {@link State#DONE} when the file was completed from the input
+     * with {@code inputHash}, whatever the glossary, {@link State#PENDING}
+     * when it was not finished or came from another input, and null when the
+     * manifest has no record of it.
+     */
+    public synchronized State getState(Path relativePath, String language, String inputHash) {
+        Entry entry = entries.get(key(relativePath.toString(), language));
+        if (entry == null) {
+            return null;
+        }
+        return entry.state() == State.DONE && entry.inputHash().equals(inputHash) ? State.DONE : State.PENDING;
+    }
+
+    /**
+     * Records that the listed files are being worked on.
+     */
+    public synchronized void markPending(List<InterfaceScan.SourceFile> files, String language, String glossaryHash) throws IOException {
+        for (InterfaceScan.SourceFile file : files) {
+            put(file.getRelativePath().toString(), new Entry(State.PENDING, language, file.getHash(), glossaryHash));
+        }
+        writer.flush();
+    }
+
+    /**
+     * Records that a file was written completely.
+     */
+    public synchronized void markDone(InterfaceScan.SourceFile file, String language, String glossaryHash) throws IOException {
+        put(file.getRelativePath().toString(), new Entry(State.DONE, language, file.getHash(), glossaryHash));
+        writer.flush();
+    }
+
+    private void put(String relativePath, Entry entry) throws IOException {
+        if (writer == null) {
+            throw new IllegalStateException("Manifest was opened read-only: " + file);
+        }
+        entries.put(key(relativePath, entry.language()), entry);
+        writer.write(line(relativePath, entry));
+    }
+
+    /**
+     * Rewrites the manifest with only the latest line of each file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        writer.close();
+        Path compacted = file.resolveSibling(FILE_NAME + ".tmp");
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            String relativePath = entry.getKey().substring(entry.getKey().indexOf('\t') + 1);
+            content.append(line(relativePath, entry.getValue()));
+        }
+        Files.writeString(compacted, content, StandardCharsets.UTF_8);
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String key(String relativePath, String language) {
+        return language + '\t' + relativePath;
+    }
+
+    private static String line(String relativePath, Entry entry) {
+        return entry.state() + "\t" + entry.language() + "\t" + entry.inputHash() + "\t" + entry.glossaryHash() + "\t" + relativePath + "\n";
+    }
+}
@@ -0,0 +1,340 @@
+package itrans;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and timers of the current job. Workers update them without locks;
+ * the window shows {@link #getStatusLine()}, the job writes {@link #toJson()}
+ * next to its output, and the same numbers are published over JMX.
+ * <p>
+ * Phase times are the summed busy time of all workers, so with several
+ * threads they can add up to more than the elapsed time.
+ */
+public class JobMetrics implements JobMetricsMXBean {
+    public static final String OBJECT_NAME = "itrans:type=JobMetrics";
+
+    /**
+     * Work that is timed separately.
+     */
+    public enum Phase {
+        READ, MASK, NETWORK, WRITE
+    }
+
+    private final Map<Phase, LongAdder> phaseNanos = new EnumMap<>(Phase.class);
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder strings = new LongAdder();
+    private final LongAdder files = new LongAdder();
+    private final AtomicLong totalStrings = new AtomicLong();
+    private final AtomicLong stringsStartedAt = new AtomicLong();
+    private final AtomicLong startedAt = new AtomicLong(System.nanoTime());
+    private final AtomicLong finishedAt = new AtomicLong();
+
+    public JobMetrics() {
+        for (Phase phase : Phase.values()) {
+            phaseNanos.put(phase, new LongAdder());
+        }
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, replacing the
+     * metrics of an earlier engine.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            // JMX is optional, the job runs the same without it
+        }
+    }
+
+    /**
+     * Clears every counter at the start of a job.
+     */
+    public void start() {
+        for (LongAdder adder : phaseNanos.values()) {
+            adder.reset();
+        }
+        latency.reset();
+        bytesOut.reset();
+        bytesIn.reset();
+        errors.reset();
+        retries.reset();
+        strings.reset();
+        files.reset();
+        totalStrings.set(0);
+        stringsStartedAt.set(0);
+        finishedAt.set(0);
+        startedAt.set(System.nanoTime());
+    }
+
+    public void finish() {
+        finishedAt.set(System.nanoTime());
+    }
+
+    public void addPhaseTime(Phase phase, long nanos) {
+        phaseNanos.get(phase).add(nanos);
+    }
+
+    /**
+     * Records one request to the translation service.
+     */
+    public void recordRequest(long nanos, long sentBytes, long receivedBytes) {
+        latency.record(nanos);
+        phaseNanos.get(Phase.NETWORK).add(nanos);
+        bytesOut.add(sentBytes);
+        bytesIn.add(receivedBytes);
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    public void addStrings(int count) {
+        strings.add(count);
+    }
+
+    /**
+     * Sets how many strings the job has to translate, counting every language,
+     * when the translation phase starts. Progress and ETA are measured from
+     * then on.
+     */
+    public void setTotalStrings(long total) {
+        totalStrings.set(total);
+        stringsStartedAt.set(System.nanoTime());
+    }
+
+    public void addFile() {
+        files.increment();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        long end = finishedAt.get();
+        return ((end == 0 ? System.nanoTime() : end) - startedAt.get()) / 1_000_000;
+    }
+
+    @Override
+    public long getRequests() {
+        return latency.getCount();
+    }
+
+    @Override
+    public double getRequestsPerSecond() {
+        return perSecond(getRequests());
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return latency.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getLatencyP95Millis() {
+        return latency.getPercentileMillis(95);
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return latency.getPercentileMillis(99);
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getStrings() {
+        return strings.sum();
+    }
+
+    @Override
+    public double getStringsPerSecond() {
+        return perSecond(getStrings());
+    }
+
+    @Override
+    public long getTotalStrings() {
+        return totalStrings.get();
+    }
+
+    /**
+     * Time left until every string is translated at the rate so far, or -1
+     * before there is a rate.
+     */
+    @Override
+    public long getEtaMillis() {
+        long total = totalStrings.get();
+        long done = getStrings();
+        long since = stringsStartedAt.get();
+        if (total == 0 || since == 0 || done == 0) {
+            return -1;
+        }
+        if (done >= total) {
+            return 0;
+        }
+        long elapsed = (System.nanoTime() - since) / 1_000_000;
+        return (total - done) * elapsed / done;
+    }
+
+    @Override
+    public long getFiles() {
+        return files.sum();
+    }
+
+    @Override
+    public double getFilesPerSecond() {
+        return perSecond(getFiles());
+    }
+
+    @Override
+    public long getReadMillis() {
+        return phaseMillis(Phase.READ);
+    }
+
+    @Override
+    public long getMaskMillis() {
+        return phaseMillis(Phase.MASK);
+    }
+
+    @Override
+    public long getNetworkMillis() {
+        return phaseMillis(Phase.NETWORK);
+    }
+
+    @Override
+    public long getWriteMillis() {
+        return phaseMillis(Phase.WRITE);
+    }
+
+    private long phaseMillis(Phase phase) {
+        return phaseNanos.get(phase).sum() / 1_000_000;
+    }
+
+    private double perSecond(long count) {
+        long elapsed = getElapsedMillis();
+        return elapsed <= 0 ? 0 : count * 1000.0 / elapsed;
+    }
+
+    /**
+     * One line for the status bar of the window.
+     */
+    public String getStatusLine() {
+        return String.format(Locale.ROOT, "Requests %d (%.1f/s)  p50 %.0f ms  p95 %.0f ms  p99 %.0f ms  |  Strings %s%.0f/s  Files %.1f/s  |  Errors %d  Retries %d",
+                getRequests(), getRequestsPerSecond(), getLatencyP50Millis(), getLatencyP95Millis(), getLatencyP99Millis(),
+                getProgress(), getStringsPerSecond(), getFilesPerSecond(), getErrors(), getRetries());
+    }
+
+    /**
+     * Strings done out of the total with the time left, such as
+     * {@code "1200/5000 (24%, 3 min 10 s left) "}, or "" before the total is known.
+     */
+    public String getProgress() {
+        long total = getTotalStrings();
+        if (total == 0) {
+            return "";
+        }
+        long done = Math.min(getStrings(), total);
+        long eta = getEtaMillis();
+        return String.format(Locale.ROOT, "%d/%d (%d%%%s) ", done, total, done * 100 / total,
+                eta < 0 ? "" : ", " + formatDuration(eta) + " left");
+    }
+
+    /**
+     * Formats a duration for people, rounded up to whole seconds.
+     */
+    public static String formatDuration(long millis) {
+        long seconds = (millis + 999) / 1000;
+        if (seconds < 60) {
+            return seconds + " s";
+        }
+        if (seconds < 3600) {
+            return seconds / 60 + " min " + seconds % 60 + " s";
+        }
+        return seconds / 3600 + " h " + seconds / 60 % 60 + " min";
+    }
+
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\n"
+                + "  \"elapsedMs\": %d,\n"
+                + "  \"phasesMs\": {\"read\": %d, \"mask\": %d, \"network\": %d, \"write\": %d},\n"
+                + "  \"requests\": {\"count\": %d, \"perSecond\": %.2f, \"errors\": %d, \"retries\": %d,"
+                + " \"bytesOut\": %d, \"bytesIn\": %d},\n"
+                + "  \"latencyMs\": {\"p50\": %.2f, \"p95\": %.2f, \"p99\": %.2f, \"mean\": %.2f, \"max\": %.2f},\n"
+                + "  \"strings\": {\"count\": %d, \"total\": %d, \"perSecond\": %.2f},\n"
+                + "  \"files\": {\"count\": %d, \"perSecond\": %.2f}\n"
+                + "}\n",
+                getElapsedMillis(), getReadMillis(), getMaskMillis(), getNetworkMillis(), getWriteMillis(),
+                getRequests(), getRequestsPerSecond(), getErrors(), getRetries(), getBytesOut(), getBytesIn(),
+                getLatencyP50Millis(), getLatencyP95Millis(), getLatencyP99Millis(), latency.getMeanMillis(), latency.getMaxMillis(),
+                getStrings(), getTotalStrings(), getStringsPerSecond(), getFiles(), getFilesPerSecond());
+    }
+
+    public void writeReport(Path file) throws IOException {
+        Files.writeString(file, toJson(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the mean request latency of a report written by
+     * {@link #writeReport(Path)}, or -1 when there is no report or it holds
+     * no requests.
+     */
+    public static double readMeanLatencyMillis(Path file) {
+        try {
+            String json = Files.readString(file, StandardCharsets.UTF_8);
+            Matcher count = Pattern.compile("\"requests\": \\{\"count\": (\\d+)").matcher(json);
+            Matcher mean = Pattern.compile("\"mean\": ([0-9.]+)").matcher(json);
+            if (count.find() && Long.parseLong(count.group(1)) > 0 && mean.find()) {
+                return Double.parseDouble(mean.group(1));
+            }
+        } catch (IOException | NumberFormatException e) {
+            // No usable report
+        }
+        return -1;
+    }
+}
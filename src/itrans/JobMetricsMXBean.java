@@ -0,0 +1,46 @@
+package itrans;
+
+/**
+ * JMX view of the running job, registered as {@code itrans:type=JobMetrics}.
+ */
+public interface JobMetricsMXBean {
+    long getElapsedMillis();
+
+    long getRequests();
+
+    double getRequestsPerSecond();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP95Millis();
+
+    double getLatencyP99Millis();
+
+    long getBytesOut();
+
+    long getBytesIn();
+
+    long getErrors();
+
+    long getRetries();
+
+    long getStrings();
+
+    double getStringsPerSecond();
+
+    long getTotalStrings();
+
+    long getEtaMillis();
+
+    long getFiles();
+
+    double getFilesPerSecond();
+
+    long getReadMillis();
+
+    long getMaskMillis();
+
+    long getNetworkMillis();
+
+    long getWriteMillis();
+}
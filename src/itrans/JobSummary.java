@@ -0,0 +1,27 @@
+package itrans;
+
+/**
+ * Outcome of one {@link TranslationJob} run.
+ *
+ * @param files files translated by this run
+ * @param skippedFiles files skipped because they were already up to date
+ * @param reusedStrings unique strings that kept the translation of the earlier version, see {@link PreviousTranslation}
+ * @param keptStrings unique strings kept as they are without a request, see {@link SkipFilter}
+ * @param savedRequests requests the kept strings would have taken
+ * @param failedFiles files that were not written or kept an untranslated string
+ */
+public record JobSummary(String language, int files, int skippedFiles, int strings, int uniqueStrings,
+        int reusedStrings, int keptStrings, int savedRequests, int failedStrings, int failedFiles, long elapsedMillis) {
+
+    public boolean isSuccessful() {
+        return failedStrings == 0 && failedFiles == 0;
+    }
+
+    public String toJson() {
+        return "{\"language\":\"" + Json.escape(language) + "\",\"files\":" + files + ",\"skippedFiles\":" + skippedFiles
+                + ",\"strings\":" + strings + ",\"uniqueStrings\":" + uniqueStrings
+                + ",\"reusedStrings\":" + reusedStrings + ",\"keptStrings\":" + keptStrings + ",\"savedRequests\":" + savedRequests
+                + ",\"failedStrings\":" + failedStrings + ",\"failedFiles\":" + failedFiles
+                + ",\"elapsedMs\":" + elapsedMillis + "}";
+    }
+}
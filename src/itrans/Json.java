@@ -0,0 +1,39 @@
+package itrans;
+
+/**
+ * Escaping for the JSON the tool prints, writes and serves.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Escapes {@code text} for use between double quotes: quotes, backslashes
+     * and every control character below U+0020.
+     */
+    static String escape(String text) {
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                if (sb != null) {
+                    sb.append(c);
+                }
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(text.length() + 16).append(text, 0, i);
+            }
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> sb.append(String.format("\\u%04x", (int) c));
+            }
+        }
+        return sb == null ? text : sb.toString();
+    }
+}
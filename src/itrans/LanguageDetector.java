@@ -0,0 +1,237 @@
+package itrans;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tells whether a text is already written in a target language, without any
+ * network I/O. The writing system decides first: a language with a script of
+ * its own, such as Greek, Thai or Korean, is recognised by its letters alone.
+ * Languages that share a script are told apart by letter trigrams, compared
+ * against profiles built from the sample texts bundled in
+ * {@code res/languages/<code>.txt}. A language with neither is never
+ * recognised, so its strings are always translated.
+ */
+public final class LanguageDetector {
+    /** Languages with a bundled sample text. */
+    static final List<String> PROFILES = List.of("en", "id", "ms", "vi", "fil", "es", "pt", "fr", "de", "it", "nl", "tr", "pl");
+
+    private static final Map<String, Character.UnicodeScript> SCRIPTS = Map.ofEntries(
+            Map.entry("el", Character.UnicodeScript.GREEK),
+            Map.entry("iw", Character.UnicodeScript.HEBREW),
+            Map.entry("he", Character.UnicodeScript.HEBREW),
+            Map.entry("th", Character.UnicodeScript.THAI),
+            Map.entry("ko", Character.UnicodeScript.HANGUL),
+            Map.entry("ka", Character.UnicodeScript.GEORGIAN),
+            Map.entry("hy", Character.UnicodeScript.ARMENIAN),
+            Map.entry("km", Character.UnicodeScript.KHMER),
+            Map.entry("lo", Character.UnicodeScript.LAO),
+            Map.entry("my", Character.UnicodeScript.MYANMAR),
+            Map.entry("si", Character.UnicodeScript.SINHALA),
+            Map.entry("bn", Character.UnicodeScript.BENGALI),
+            Map.entry("pa", Character.UnicodeScript.GURMUKHI),
+            Map.entry("gu", Character.UnicodeScript.GUJARATI),
+            Map.entry("ta", Character.UnicodeScript.TAMIL),
+            Map.entry("te", Character.UnicodeScript.TELUGU),
+            Map.entry("kn", Character.UnicodeScript.KANNADA),
+            Map.entry("ml", Character.UnicodeScript.MALAYALAM));
+
+    private final List<String> languages; // With a profile
+    private final Character.UnicodeScript[] scripts; // Of each profile
+    private final Map<String, double[]> logProbabilities; // Trigram log probability in each profile, add-one smoothed
+    private final double[] unseen; // Log probability of a trigram a profile has not seen
+    private final double minMargin;
+
+    private LanguageDetector(List<String> languages, Character.UnicodeScript[] scripts, Map<String, double[]> logProbabilities,
+            double[] unseen, double minMargin) {
+        this.languages = languages;
+        this.scripts = scripts;
+        this.logProbabilities = logProbabilities;
+        this.unseen = unseen;
+        this.minMargin = minMargin;
+    }
+
+    /**
+     * Builds the profiles of the bundled sample texts; a sample that is not
+     * on the class path is left out.
+     *
+     * @param minMargin how much more likely, as mean log probability per trigram, the
+     *                  target language must be than any other before a text counts as written in it
+     */
+    public static LanguageDetector load(double minMargin) throws IOException {
+        List<String> languages = new ArrayList<>();
+        List<Map<String, Integer>> counts = new ArrayList<>();
+        List<Character.UnicodeScript> scripts = new ArrayList<>();
+        List<Integer> totals = new ArrayList<>();
+        for (String language : PROFILES) {
+            try (InputStream in = LanguageDetector.class.getResourceAsStream("/languages/" + language + ".txt")) {
+                if (in == null) {
+                    continue;
+                }
+                StringBuilder sample = new StringBuilder();
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    sample.append(line).append(' ');
+                }
+                Letters letters = letters(sample.toString());
+                Map<String, Integer> languageCounts = new HashMap<>();
+                List<String> trigrams = trigrams(letters.text());
+                for (String trigram : trigrams) {
+                    languageCounts.merge(trigram, 1, Integer::sum);
+                }
+                languages.add(language);
+                counts.add(languageCounts);
+                scripts.add(letters.dominantScript());
+                totals.add(trigrams.size());
+            }
+        }
+
+        double[] unseen = new double[languages.size()];
+        Map<String, double[]> logProbabilities = new HashMap<>();
+        for (int l = 0; l < languages.size(); l++) {
+            unseen[l] = -Math.log(totals.get(l) + counts.get(l).size() + 1.0);
+            for (String trigram : counts.get(l).keySet()) {
+                logProbabilities.computeIfAbsent(trigram, k -> new double[unseen.length]);
+            }
+        }
+        for (Map.Entry<String, double[]> trigram : logProbabilities.entrySet()) {
+            for (int l = 0; l < languages.size(); l++) {
+                Integer count = counts.get(l).get(trigram.getKey());
+                trigram.getValue()[l] = (count == null ? 0 : Math.log(count + 1.0)) + unseen[l];
+            }
+        }
+        return new LanguageDetector(List.copyOf(languages), scripts.toArray(new Character.UnicodeScript[0]),
+                logProbabilities, unseen, minMargin);
+    }
+
+    /**
+     * Returns true when {@code text} is already written in {@code language}.
+     * Nearly all letters must be in the language's script; for a language
+     * told apart by trigrams the text also needs {@code minLetters} letters.
+     * Glossary masks are ignored.
+     */
+    public boolean isWrittenIn(String text, String language, int minLetters) {
+        String base = baseLanguage(language);
+        Character.UnicodeScript script = SCRIPTS.get(base);
+        int target = languages.indexOf(base);
+        if (script == null && target < 0 && !base.equals("ja")) {
+            return false;
+        }
+        Letters letters = letters(text);
+        if (letters.count() == 0) {
+            return false;
+        }
+        if (base.equals("ja")) {
+            // Kanji alone could just as well be Chinese, only kana make it Japanese
+            int kana = letters.count(Character.UnicodeScript.HIRAGANA) + letters.count(Character.UnicodeScript.KATAKANA);
+            return kana > 0 && isDominant(kana + letters.count(Character.UnicodeScript.HAN), letters.count());
+        }
+        if (script != null) {
+            return isDominant(letters.count(script), letters.count());
+        }
+        if (letters.count() < minLetters || !isDominant(letters.count(scripts[target]), letters.count())) {
+            return false;
+        }
+
+        // Every profile is scored in the same pass, one lookup per trigram
+        List<String> trigrams = trigrams(letters.text());
+        double[] scores = new double[languages.size()];
+        for (String trigram : trigrams) {
+            double[] logProbability = logProbabilities.get(trigram);
+            for (int l = 0; l < scores.length; l++) {
+                scores[l] += logProbability == null ? unseen[l] : logProbability[l];
+            }
+        }
+        double runnerUp = Double.NEGATIVE_INFINITY;
+        for (int l = 0; l < scores.length; l++) {
+            if (l != target && scripts[l] == scripts[target]) {
+                runnerUp = Math.max(runnerUp, scores[l]);
+            }
+        }
+        return (scores[target] - runnerUp) / trigrams.size() >= minMargin;
+    }
+
+    // pt-BR is Portuguese, zh-TW still Chinese
+    static String baseLanguage(String language) {
+        int dash = language.indexOf('-');
+        if (dash < 0) {
+            dash = language.indexOf('_');
+        }
+        return (dash < 0 ? language : language.substring(0, dash)).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isDominant(int count, int total) {
+        return count * 10 >= total * 9;
+    }
+
+    // The letters of a text, lower case, each word between single spaces, and how many belong to each script
+    private record Letters(String text, int count, Map<Character.UnicodeScript, Integer> scripts) {
+
+        int count(Character.UnicodeScript script) {
+            return scripts.getOrDefault(script, 0);
+        }
+
+        Character.UnicodeScript dominantScript() {
+            Character.UnicodeScript dominant = Character.UnicodeScript.LATIN;
+            int most = 0;
+            for (Map.Entry<Character.UnicodeScript, Integer> count : scripts.entrySet()) {
+                if (count.getValue() > most) {
+                    most = count.getValue();
+                    dominant = count.getKey();
+                }
+            }
+            return dominant;
+        }
+    }
+
+    private static Letters letters(String text) {
+        StringBuilder letters = new StringBuilder(text.length() + 2).append(' ');
+        Map<Character.UnicodeScript, Integer> scripts = new HashMap<>(4);
+        int count = 0;
+        int i = 0;
+        while (i < text.length()) {
+            int mask = MarkupTokenizer.maskLength(text, i);
+            if (mask > 0) {
+                i += mask; // A glossary term says nothing about the language around it
+                continue;
+            }
+            int c = text.codePointAt(i);
+            i += Character.charCount(c);
+            if (Character.isLetter(c)) {
+                letters.appendCodePoint(Character.toLowerCase(c));
+                // Marks shared by several scripts, like the Japanese long vowel, count for none
+                Character.UnicodeScript script = Character.UnicodeScript.of(c);
+                if (script != Character.UnicodeScript.COMMON && script != Character.UnicodeScript.INHERITED) {
+                    scripts.merge(script, 1, Integer::sum);
+                    count++;
+                }
+            } else if (letters.charAt(letters.length() - 1) != ' ') {
+                letters.append(' ');
+            }
+        }
+        if (letters.charAt(letters.length() - 1) != ' ') {
+            letters.append(' ');
+        }
+        return new Letters(letters.toString(), count, scripts);
+    }
+
+    // Every three letters in a row, word starts and ends included through the spaces around the words
+    private static List<String> trigrams(String letters) {
+        List<String> trigrams = new ArrayList<>(letters.length());
+        for (int i = 0; i + 3 <= letters.length(); i++) {
+            if (letters.charAt(i + 1) != ' ') {
+                trigrams.add(letters.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,28 @@
+package itrans;
+
+import java.util.Locale;
+
+/**
+ * Verbosity of job log messages, from most to least important.
+ */
+public enum LogLevel {
+    ERROR, WARN, INFO, DEBUG;
+
+    /**
+     * Returns true when a message of {@code level} passes a threshold of this level.
+     */
+    public boolean includes(LogLevel level) {
+        return level.ordinal() <= ordinal();
+    }
+
+    public static LogLevel parse(String value, LogLevel defaultLevel) {
+        if (value == null) {
+            return defaultLevel;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return defaultLevel;
+        }
+    }
+}
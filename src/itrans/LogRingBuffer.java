@@ -0,0 +1,52 @@
+package itrans;
+
+import java.util.ArrayDeque;
+
+/**
+ * View model for the log area: keeps only the latest lines, so the window's
+ * memory stays flat on jobs of any size. Writers never touch Swing; the
+ * window polls {@link #getVersion()} on a timer and repaints only when it
+ * changed, which coalesces any number of messages into one repaint per frame.
+ */
+public class LogRingBuffer implements LogSink {
+    private final ArrayDeque<String> lines;
+    private final int capacity;
+    private long version;
+
+    public LogRingBuffer(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.lines = new ArrayDeque<>(this.capacity);
+    }
+
+    @Override
+    public synchronized void write(LogLevel level, String message) {
+        if (lines.size() == capacity) {
+            lines.removeFirst();
+        }
+        lines.addLast(level == LogLevel.INFO ? message : level + ": " + message);
+        version++;
+    }
+
+    /**
+     * Increases with every message, so a reader can tell whether to redraw.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the buffered lines as one text block.
+     */
+    public synchronized String getText() {
+        StringBuilder text = new StringBuilder(lines.size() * 64);
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        return text.toString();
+    }
+
+    public synchronized void clear() {
+        lines.clear();
+        version++;
+    }
+}
@@ -0,0 +1,10 @@
+package itrans;
+
+/**
+ * Destination of job log messages. Sinks are called from worker threads and
+ * must not block for long.
+ */
+@FunctionalInterface
+public interface LogSink {
+    void write(LogLevel level, String message);
+}
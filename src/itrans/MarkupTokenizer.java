@@ -0,0 +1,308 @@
+package itrans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a {@code String="..."} value into the game markup the translation
+ * service must not touch and the text it should translate. Markup is
+ * <ul>
+ * <li>escaped line breaks and tabs: {@code \r}, {@code \n}, {@code \t}</li>
+ * <li>colour codes: {@code ^FFCC00}</li>
+ * <li>printf arguments: {@code %d}, {@code %s}, {@code %.1f}, {@code %%}</li>
+ * <li>entities: {@code &amp;}, {@code &#38;}</li>
+ * <li>text that looks like a placeholder itself: {@code {1}}</li>
+ * </ul>
+ * Everything before the first and after the last word, markup, numbers and
+ * symbols alike, is kept aside as it is; only the run in between is sent,
+ * with each markup token inside it replaced by a compact numbered
+ * placeholder such as {@code {1}}. A value without any word is not sent at
+ * all. Glossary masks count as words.
+ * <p>
+ * Putting the translation back together never breaks the markup: a lost
+ * placeholder's token is appended to the run, a doubled one is dropped, and
+ * printf arguments are always put back in their original order, since the
+ * game fills them in by position.
+ */
+public final class MarkupTokenizer {
+    private static final String OPENING = "(\"'\u00BF\u00A1\u00AB\u201C\u2018";
+    private static final String CLOSING = ".!?:;,)\"'\u00BB\u201D\u2019\u2026\u3002\uFF01\uFF1F\uFF1A\uFF1B\uFF0C\u3001\uFF09";
+
+    /**
+     * A value taken apart: {@code prefix + run + suffix} with the placeholders
+     * of {@code run} filled in gives the value back.
+     *
+     * @param run the text to translate, null when the value has no word in it
+     * @param padding two bits per token, set where a space was put before or after its placeholder
+     */
+    public record Template(String prefix, String run, List<String> tokens, String suffix, long padding) {
+
+        public boolean isTranslatable() {
+            return run != null;
+        }
+
+        /**
+         * Puts {@code translatedRun}, the translation of {@link #run()}, back
+         * between the prefix and the suffix with the markup restored.
+         */
+        public String fill(String translatedRun) {
+            if (run == null) {
+                return prefix;
+            }
+            if (tokens.isEmpty()) {
+                return prefix + translatedRun + suffix;
+            }
+            StringBuilder filled = new StringBuilder(prefix.length() + translatedRun.length() + suffix.length() + 16);
+            filled.append(prefix);
+            boolean[] used = new boolean[tokens.size()];
+            int nextArgument = 0; // printf arguments are put back in source order, whatever order came back
+            int copied = 0;
+            int length = translatedRun.length();
+            for (int i = 0; i < length; i++) {
+                if (translatedRun.charAt(i) != '{') {
+                    continue;
+                }
+                int[] placeholder = parsePlaceholder(translatedRun, i);
+                if (placeholder == null) {
+                    continue;
+                }
+                int index = placeholder[0] - 1;
+                int end = placeholder[1];
+                int chosen = -1; // Token to put here, none for an unknown or repeated placeholder
+                if (index >= 0 && index < tokens.size()) {
+                    if (isArgument(tokens.get(index))) {
+                        while (nextArgument < tokens.size() && (used[nextArgument] || !isArgument(tokens.get(nextArgument)))) {
+                            nextArgument++;
+                        }
+                        chosen = nextArgument < tokens.size() ? nextArgument : -1;
+                    } else if (!used[index]) {
+                        chosen = index;
+                    }
+                }
+                int start = i;
+                if (chosen >= 0 && isPadded(index, true) && start > copied && translatedRun.charAt(start - 1) == ' ') {
+                    start--;
+                }
+                filled.append(translatedRun, copied, start);
+                if (chosen >= 0) {
+                    used[chosen] = true;
+                    filled.append(tokens.get(chosen));
+                    if (isPadded(index, false) && end < length && translatedRun.charAt(end) == ' ') {
+                        end++;
+                    }
+                }
+                copied = end;
+                i = end - 1;
+            }
+            filled.append(translatedRun, copied, length);
+            for (int t = 0; t < tokens.size(); t++) {
+                if (!used[t]) {
+                    filled.append(tokens.get(t));
+                }
+            }
+            return filled.append(suffix).toString();
+        }
+
+        // Whether a space was put before (or after) the placeholder of token index when the run was built
+        private boolean isPadded(int index, boolean before) {
+            int bit = 2 * index + (before ? 0 : 1);
+            return bit < 64 && (padding & 1L << bit) != 0;
+        }
+    }
+
+    private MarkupTokenizer() {
+    }
+
+    /**
+     * Takes {@code text} apart. Adjacent markup tokens form one placeholder.
+     */
+    public static Template tokenize(String text) {
+        int length = text.length();
+        // Start and end of every markup token, and where the first word starts and the last one ends
+        List<int[]> spans = new ArrayList<>(4);
+        int runStart = -1;
+        int runEnd = -1;
+        int i = 0;
+        while (i < length) {
+            int token = tokenLength(text, i);
+            if (token > 0) {
+                int[] previous = spans.isEmpty() ? null : spans.get(spans.size() - 1);
+                if (previous != null && previous[1] == i) {
+                    previous[1] = i + token; // Adjacent markup becomes one placeholder
+                } else {
+                    spans.add(new int[] {i, i + token});
+                }
+                i += token;
+                continue;
+            }
+            int word = maskLength(text, i);
+            if (word == 0 && Character.isLetter(text.codePointAt(i))) {
+                word = Character.charCount(text.codePointAt(i));
+            }
+            if (word > 0) {
+                if (runStart < 0) {
+                    runStart = i;
+                }
+                runEnd = i + word;
+                i += word;
+                continue;
+            }
+            i++;
+        }
+        if (runStart < 0) {
+            return new Template(text, null, List.of(), "", 0);
+        }
+
+        // Opening and closing punctuation stays with the words; no token starts or ends with it
+        while (runStart > 0 && OPENING.indexOf(text.charAt(runStart - 1)) >= 0) {
+            runStart--;
+        }
+        while (runEnd < length && CLOSING.indexOf(text.charAt(runEnd)) >= 0) {
+            runEnd++;
+        }
+
+        StringBuilder run = new StringBuilder(runEnd - runStart + 8);
+        List<String> tokens = new ArrayList<>(spans.size());
+        long padding = 0;
+        int copied = runStart;
+        for (int[] span : spans) {
+            if (span[0] < runStart || span[1] > runEnd) {
+                continue;
+            }
+            run.append(text, copied, span[0]);
+            copied = span[1];
+            // A placeholder glued to a word would be translated as part of it; only the first 32 can be padded
+            int bit = 2 * tokens.size();
+            if (bit < 64 && run.length() > 0 && !Character.isWhitespace(run.charAt(run.length() - 1))) {
+                run.append(' ');
+                padding |= 1L << bit;
+            }
+            tokens.add(text.substring(span[0], span[1]));
+            run.append('{').append(tokens.size()).append('}');
+            if (bit < 64 && span[1] < runEnd && !Character.isWhitespace(text.charAt(span[1]))) {
+                run.append(' ');
+                padding |= 1L << (bit + 1);
+            }
+        }
+        run.append(text, copied, runEnd);
+        return new Template(text.substring(0, runStart), run.toString(), List.copyOf(tokens), text.substring(runEnd), padding);
+    }
+
+    // Length of the markup token starting at i, 0 when there is none
+    private static int tokenLength(String text, int i) {
+        char c = text.charAt(i);
+        int length = text.length();
+        switch (c) {
+            case '\\':
+                return i + 1 < length && "rnt".indexOf(text.charAt(i + 1)) >= 0 ? 2 : 0;
+            case '^': {
+                int end = i + 1;
+                while (end < length && end - i <= 6 && isHexDigit(text.charAt(end))) {
+                    end++;
+                }
+                return end - i == 7 ? 7 : 0;
+            }
+            case '%': {
+                int end = i + 1;
+                if (end < length && text.charAt(end) == '%') {
+                    return 2;
+                }
+                while (end < length && "-+0#".indexOf(text.charAt(end)) >= 0) {
+                    end++;
+                }
+                while (end < length && Character.isDigit(text.charAt(end))) {
+                    end++;
+                }
+                if (end + 1 < length && text.charAt(end) == '.' && Character.isDigit(text.charAt(end + 1))) {
+                    end++;
+                    while (end < length && Character.isDigit(text.charAt(end))) {
+                        end++;
+                    }
+                }
+                return end < length && "diouxXeEfgGcs".indexOf(text.charAt(end)) >= 0 ? end + 1 - i : 0;
+            }
+            case '&':
+                return entityLength(text, i);
+            case '{': {
+                int[] placeholder = parsePlaceholder(text, i);
+                return placeholder == null ? 0 : placeholder[1] - i;
+            }
+            default:
+                return 0;
+        }
+    }
+
+    // Length of the entity &name; or &#38; starting at i, 0 when there is none
+    static int entityLength(String text, int i) {
+        int length = text.length();
+        if (text.charAt(i) != '&') {
+            return 0;
+        }
+        int end = i + 1;
+        if (end < length && text.charAt(end) == '#') {
+            end++;
+            if (end < length && (text.charAt(end) == 'x' || text.charAt(end) == 'X')) {
+                end++;
+            }
+        }
+        int nameStart = end;
+        while (end < length && end - i < 10 && Character.isLetterOrDigit(text.charAt(end))) {
+            end++;
+        }
+        return end > nameStart && end < length && text.charAt(end) == ';' ? end + 1 - i : 0;
+    }
+
+    // Length of the glossary mask [index[word]] starting at i, 0 when there is none
+    static int maskLength(String text, int i) {
+        if (text.charAt(i) != '[') {
+            return 0;
+        }
+        int end = i + 1;
+        while (end < text.length() && Character.isDigit(text.charAt(end))) {
+            end++;
+        }
+        if (end == i + 1 || end >= text.length() || text.charAt(end) != '[') {
+            return 0;
+        }
+        int close = text.indexOf("]]", end + 1);
+        return close < 0 ? 0 : close + 2 - i;
+    }
+
+    // {number}, also as { number } the way services sometimes return it: {number, end}, or null
+    private static int[] parsePlaceholder(String text, int i) {
+        int length = text.length();
+        int end = i + 1;
+        while (end < length && text.charAt(end) == ' ') {
+            end++;
+        }
+        int digits = end;
+        while (end < length && end - digits < 4 && Character.isDigit(text.charAt(end))) {
+            end++;
+        }
+        if (end == digits) {
+            return null;
+        }
+        int number = Integer.parseInt(text, digits, end, 10);
+        while (end < length && text.charAt(end) == ' ') {
+            end++;
+        }
+        return end < length && text.charAt(end) == '}' ? new int[] {number, end + 1} : null;
+    }
+
+    // Whether a token holds a printf argument; %% is only a percent sign
+    private static boolean isArgument(String token) {
+        int i = 0;
+        while (i < token.length()) {
+            int markup = tokenLength(token, i);
+            if (markup > 0 && token.charAt(i) == '%' && token.charAt(i + 1) != '%') {
+                return true;
+            }
+            i += Math.max(1, markup);
+        }
+        return false;
+    }
+
+    private static boolean isHexDigit(char c) {
+        return c >= '0' && c <= '9' || c >= 'A' && c <= 'F' || c >= 'a' && c <= 'f';
+    }
+}
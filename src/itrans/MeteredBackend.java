@@ -0,0 +1,49 @@
+package itrans;
+
+import java.io.IOException;
+
+/**
+ * Times every request of the wrapped backend and counts the text sent and
+ * received, so the latency histogram holds network time only.
+ */
+public class MeteredBackend implements TranslationBackend {
+    private final TranslationBackend backend;
+    private final JobMetrics metrics;
+
+    public MeteredBackend(TranslationBackend backend, JobMetrics metrics) {
+        this.backend = backend;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String translate(String text, String targetLanguage) throws IOException {
+        long started = System.nanoTime();
+        try {
+            String translated = backend.translate(text, targetLanguage);
+            metrics.recordRequest(System.nanoTime() - started, utf8Length(text), utf8Length(translated));
+            return translated;
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        }
+    }
+
+    // Size of the text in UTF-8 without encoding it
+    private static long utf8Length(String text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
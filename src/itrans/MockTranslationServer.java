@@ -0,0 +1,113 @@
+package itrans;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for the translation endpoint, used for offline load tests.
+ * It answers in the same JSON shape as the real service and echoes the text
+ * back, optionally after an artificial delay. A share of the requests can be
+ * refused with {@code 429 Too Many Requests} to exercise the retry path.
+ *
+ * <pre>
+ * java -cp I-Trans.jar itrans.MockTranslationServer [port] [latencyMs] [throttlePercent]
+ * </pre>
+ *
+ * Then set {@code endpoint=http://localhost:port/translate_a/single} in config.ini.
+ */
+public class MockTranslationServer {
+    private final HttpServer server;
+    private final long latencyMillis;
+    private volatile int throttlePercent;
+
+    public MockTranslationServer(int port, long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Makes this share of requests answer 429 with {@code Retry-After: 1}.
+     */
+    public void setThrottlePercent(int throttlePercent) {
+        this.throttlePercent = throttlePercent;
+    }
+
+    public String getEndpoint() {
+        return "http://localhost:" + getPort() + "/translate_a/single";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (throttlePercent > 0 && ThreadLocalRandom.current().nextInt(100) < throttlePercent) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            String text = params.getOrDefault("q", "");
+            String json = "[[[\"" + Json.escape(text) + "\",\"" + Json.escape(text) + "\",null,null,10]],null,\"en\"]";
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        MockTranslationServer server = new MockTranslationServer(port, latency);
+        server.setThrottlePercent(args.length > 2 ? Integer.parseInt(args[2]) : 0);
+        server.start();
+        System.out.println("Mock translation server listening on " + server.getEndpoint());
+    }
+}
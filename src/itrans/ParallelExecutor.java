@@ -0,0 +1,134 @@
+package itrans;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs job work on virtual threads. Every item gets its own thread, but only
+ * {@code parallelism} of them do work at the same time, plus as many
+ * submitted actions, and results always come back in the order of the input
+ * items. Virtual threads are carried by
+ * the JDK's work-stealing pool, so a worker that finishes early takes over
+ * queued items instead of idling behind a slow one.
+ */
+public class ParallelExecutor implements AutoCloseable {
+
+    /**
+     * A unit of work that may fail with an I/O error.
+     */
+    @FunctionalInterface
+    public interface Task<T, R> {
+        R apply(T item) throws IOException;
+    }
+
+    /**
+     * Work started with {@link #submit(Action)}.
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws IOException;
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final Semaphore submitPermits; // Submitted work never queues behind waiting map items
+    private final List<Future<Void>> submitted = new ArrayList<>();
+
+    public ParallelExecutor(int parallelism) {
+        this.permits = new Semaphore(Math.max(1, parallelism));
+        this.submitPermits = new Semaphore(Math.max(1, parallelism));
+    }
+
+    /**
+     * Applies {@code task} to every item concurrently. The first failure cancels
+     * the remaining items and is rethrown.
+     */
+    public <T, R> List<R> map(List<T> items, Task<T, R> task) throws IOException {
+        List<Future<R>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(executor.submit(() -> {
+                permits.acquire();
+                try {
+                    return task.apply(item);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        return await(futures);
+    }
+
+    /**
+     * Starts {@code action} and returns at once, so work can be handed off
+     * from inside a {@link #map} task. Submitted work has a limit of its own,
+     * as large as that of {@link #map}, so it starts right away instead of
+     * waiting until every item already queued by a {@code map} has had its
+     * turn. Safe to call from any thread; {@link #awaitSubmitted()} waits for it.
+     */
+    public void submit(Action action) {
+        Future<Void> future = executor.submit(() -> {
+            submitPermits.acquire();
+            try {
+                action.run();
+                return null;
+            } finally {
+                submitPermits.release();
+            }
+        });
+        synchronized (submitted) {
+            submitted.add(future);
+        }
+    }
+
+    /**
+     * Waits for everything started with {@link #submit(Action)} so far. The
+     * first failure cancels the rest and is rethrown.
+     */
+    public void awaitSubmitted() throws IOException {
+        List<Future<Void>> futures;
+        synchronized (submitted) {
+            futures = new ArrayList<>(submitted);
+            submitted.clear();
+        }
+        await(futures);
+    }
+
+    private static <R> List<R> await(List<Future<R>> futures) throws IOException {
+        List<R> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Job interrupted");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,276 @@
+package itrans;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads an Angelica package such as interfaces.pck, the archive the client
+ * keeps its interface files in.
+ * <p>
+ * The layout (version 2.2, little endian) is a 12 byte header, the entry data,
+ * the file table and a 280 byte footer. The footer holds the table offset and
+ * the entry count; each table record is a 276 byte entry (GBK name padded to
+ * 260 bytes, data offset, size and stored size) behind its own length, and is
+ * zlib-compressed when that makes it smaller. Entry data is likewise stored
+ * zlib-compressed unless compressing did not pay off, in which case the
+ * stored size equals the size.
+ */
+public class PckArchive implements Closeable, InterfaceTree {
+    static final int HEADER_MAGIC_1 = 0x4DCA23EF;
+    static final int HEADER_MAGIC_2 = 0x56A089B7;
+    static final int HEADER_SIZE = 12;
+    static final int FOOTER_MAGIC_1 = 0xFDFDFEEE;
+    static final int FOOTER_MAGIC_2 = 0xF00DBEEF;
+    static final int VERSION = 0x00020002;
+    static final int FOOTER_SIZE = 280;
+    static final int DESCRIPTION_SIZE = 252;
+    static final int KEY_1 = 0xA8937462;
+    static final int KEY_2 = 0xF1A43653;
+    static final int ENTRY_SIZE = 276;
+    static final int NAME_SIZE = 260;
+    static final Charset NAME_CHARSET = Charset.forName("GBK");
+
+    /**
+     * One file in the archive. {@code storedSize} is the number of bytes the
+     * data takes in the archive; it is smaller than {@code size} when the
+     * data is compressed.
+     */
+    public record Entry(String name, long offset, int size, int storedSize) {
+        public boolean isCompressed() {
+            return storedSize < size;
+        }
+
+        /**
+         * The name as a relative path, folders separated the platform's way.
+         */
+        public Path relativePath() {
+            return Paths.get(name.replace('\\', '/'));
+        }
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<Entry> entries;
+    private final Map<Path, Entry> byPath = new HashMap<>();
+
+    private PckArchive(Path path, FileChannel channel, List<Entry> entries) {
+        this.path = path;
+        this.channel = channel;
+        this.entries = Collections.unmodifiableList(entries);
+        for (Entry entry : entries) {
+            byPath.put(entry.relativePath(), entry);
+        }
+    }
+
+    /**
+     * Returns true when {@code path} is a file ending in .pck.
+     */
+    public static boolean isArchive(Path path) {
+        return path.getFileName() != null && path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pck")
+                && Files.isRegularFile(path);
+    }
+
+    public static PckArchive open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new PckArchive(path, channel, readTable(path, channel));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static List<Entry> readTable(Path path, FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE + FOOTER_SIZE) {
+            throw new IOException("Not a package file: " + path);
+        }
+        ByteBuffer header = read(channel, 0, HEADER_SIZE);
+        ByteBuffer footer = read(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+        if (header.getInt(0) != HEADER_MAGIC_1 || header.getInt(8) != HEADER_MAGIC_2
+                || footer.getInt(0) != FOOTER_MAGIC_1 || footer.getInt(16 + DESCRIPTION_SIZE) != FOOTER_MAGIC_2) {
+            throw new IOException("Not a package file: " + path);
+        }
+        if (footer.getInt(4) != VERSION || footer.getInt(FOOTER_SIZE - 4) != VERSION) {
+            throw new IOException("Unsupported package version " + Integer.toHexString(footer.getInt(4)) + ": " + path);
+        }
+        long tableOffset = Integer.toUnsignedLong(footer.getInt(8) ^ KEY_1);
+        int count = footer.getInt(FOOTER_SIZE - 8);
+        long tableEnd = size - FOOTER_SIZE;
+        if (tableOffset < HEADER_SIZE || tableOffset > tableEnd || count < 0) {
+            throw new IOException("Damaged package table: " + path);
+        }
+
+        ByteBuffer table = read(channel, tableOffset, (int) (tableEnd - tableOffset));
+        List<Entry> entries = new ArrayList<>(count);
+        Inflater inflater = new Inflater();
+        try {
+            byte[] record = new byte[ENTRY_SIZE];
+            for (int i = 0; i < count; i++) {
+                int length = table.getInt() ^ KEY_1;
+                if ((table.getInt() ^ KEY_2) != length || length <= 0 || length > ENTRY_SIZE || length > table.remaining()) {
+                    throw new IOException("Damaged package table: " + path);
+                }
+                byte[] stored = new byte[length];
+                table.get(stored);
+                if (length < ENTRY_SIZE) {
+                    inflate(inflater, stored, record);
+                } else {
+                    System.arraycopy(stored, 0, record, 0, ENTRY_SIZE);
+                }
+                entries.add(parseEntry(record, tableOffset, path));
+            }
+        } finally {
+            inflater.end();
+        }
+        return entries;
+    }
+
+    private static Entry parseEntry(byte[] record, long dataEnd, Path path) throws IOException {
+        int nameLength = 0;
+        while (nameLength < NAME_SIZE && record[nameLength] != 0) {
+            nameLength++;
+        }
+        ByteBuffer fields = ByteBuffer.wrap(record, NAME_SIZE, ENTRY_SIZE - NAME_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long offset = Integer.toUnsignedLong(fields.getInt());
+        int size = fields.getInt();
+        int storedSize = fields.getInt();
+        if (size < 0 || storedSize < 0 || storedSize > size || offset + storedSize > dataEnd) {
+            throw new IOException("Damaged package entry: " + path);
+        }
+        return new Entry(new String(record, 0, nameLength, NAME_CHARSET), offset, size, storedSize);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the entry stored under {@code relativePath}, or null.
+     */
+    public Entry getEntry(Path relativePath) {
+        return byPath.get(relativePath);
+    }
+
+    /**
+     * Reads and decompresses one entry. Safe to call from several threads.
+     */
+    public byte[] read(Entry entry) throws IOException {
+        ByteBuffer stored = read(channel, entry.offset(), entry.storedSize());
+        if (!entry.isCompressed()) {
+            return stored.array();
+        }
+        byte[] content = new byte[entry.size()];
+        Inflater inflater = new Inflater();
+        try {
+            inflate(inflater, stored.array(), content);
+        } finally {
+            inflater.end();
+        }
+        return content;
+    }
+
+    /**
+     * Copies the stored bytes of an entry to {@code out} as they are.
+     */
+    public void transferRaw(Entry entry, WritableByteChannel out) throws IOException {
+        long done = 0;
+        while (done < entry.storedSize()) {
+            done += channel.transferTo(entry.offset() + done, entry.storedSize() - done, out);
+        }
+    }
+
+    @Override
+    public List<Path> list() {
+        List<Path> paths = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.name().toLowerCase(Locale.ROOT).endsWith(".xml")) {
+                paths.add(entry.relativePath());
+            }
+        }
+        return paths;
+    }
+
+    @Override
+    public InterfaceFile read(Path relativePath) throws IOException {
+        Entry entry = byPath.get(relativePath);
+        if (entry == null) {
+            throw new IOException("No entry " + relativePath + " in " + path);
+        }
+        return InterfaceFile.wrap(read(entry));
+    }
+
+    @Override
+    public Path describe(Path relativePath) {
+        return path.resolve(relativePath);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Package file ended early");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void inflate(Inflater inflater, byte[] stored, byte[] target) throws IOException {
+        inflater.reset();
+        inflater.setInput(stored);
+        try {
+            int done = 0;
+            while (done < target.length && !inflater.finished()) {
+                int n = inflater.inflate(target, done, target.length - done);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                done += n;
+            }
+            if (done != target.length) {
+                throw new IOException("Damaged package data");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Damaged package data: " + e.getMessage(), e);
+        }
+    }
+
+    // The 276 byte table record of an entry, as parseEntry reads it back
+    static byte[] entryRecord(String name, long offset, int size, int storedSize) throws IOException {
+        byte[] nameBytes = name.getBytes(NAME_CHARSET);
+        if (nameBytes.length >= NAME_SIZE) {
+            throw new IOException("Entry name too long: " + name);
+        }
+        ByteBuffer record = ByteBuffer.allocate(ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        record.put(nameBytes);
+        record.position(NAME_SIZE);
+        record.putInt((int) offset).putInt(size).putInt(storedSize);
+        return record.array();
+    }
+}
@@ -0,0 +1,164 @@
+package itrans;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writes an Angelica package in the layout {@link PckArchive} reads. Entries
+ * are appended in the order they are added; the table and footer are written
+ * when the writer is closed. The package is built in a temporary file next
+ * to the target and only moved into place once it is complete, so a failed
+ * job never leaves half an interfaces.pck behind.
+ */
+public class PckWriter implements Closeable {
+    private static final String DESCRIPTION = "Angelica File Package, Perfect World.";
+    // The client inflates any level; the fastest one costs a third of the default's time for about 25% more bytes
+    private static final int LEVEL = Deflater.BEST_SPEED;
+
+    /**
+     * Entry data the way it is stored: zlib-compressed when that is smaller,
+     * the plain content otherwise.
+     */
+    public record Packed(int size, byte[] data) {
+    }
+
+    private final Path target;
+    private final Path temporary;
+    private final FileChannel channel;
+    private final ByteArrayOutputStream table = new ByteArrayOutputStream();
+    private final Deflater deflater = new Deflater(LEVEL);
+    private int count;
+    private boolean complete;
+
+    private PckWriter(Path target) throws IOException {
+        this.target = target;
+        Path folder = target.toAbsolutePath().getParent();
+        Files.createDirectories(folder);
+        this.temporary = folder.resolve(target.getFileName() + ".tmp");
+        this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        channel.position(PckArchive.HEADER_SIZE);
+    }
+
+    public static PckWriter create(Path target) throws IOException {
+        return new PckWriter(target);
+    }
+
+    /**
+     * Compresses content for {@link #add(String, Packed)}. Thread safe, so
+     * entries can be packed in parallel and written in order afterwards.
+     */
+    public static Packed pack(byte[] content) {
+        Deflater deflater = new Deflater(LEVEL);
+        try {
+            return new Packed(content.length, deflate(deflater, content));
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Adds an entry, compressing its content.
+     */
+    public void add(String name, byte[] content) throws IOException {
+        add(name, new Packed(content.length, deflate(deflater, content)));
+    }
+
+    public void add(String name, Packed packed) throws IOException {
+        long offset = channel.position();
+        write(ByteBuffer.wrap(packed.data()));
+        addRecord(name, offset, packed.size(), packed.data().length);
+    }
+
+    /**
+     * Copies an entry of another package without decompressing it.
+     */
+    public void copy(PckArchive source, PckArchive.Entry entry) throws IOException {
+        long offset = channel.position();
+        source.transferRaw(entry, channel);
+        channel.position(offset + entry.storedSize());
+        addRecord(entry.name(), offset, entry.size(), entry.storedSize());
+    }
+
+    /**
+     * Writes the table and footer and moves the package into place.
+     */
+    public void finish() throws IOException {
+        long tableOffset = channel.position();
+        write(ByteBuffer.wrap(table.toByteArray()));
+
+        ByteBuffer footer = ByteBuffer.allocate(PckArchive.FOOTER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        footer.putInt(PckArchive.FOOTER_MAGIC_1).putInt(PckArchive.VERSION)
+                .putInt((int) tableOffset ^ PckArchive.KEY_1).putInt(0);
+        footer.put(Arrays.copyOf(DESCRIPTION.getBytes(StandardCharsets.US_ASCII), PckArchive.DESCRIPTION_SIZE));
+        footer.putInt(PckArchive.FOOTER_MAGIC_2).putInt(count).putInt(PckArchive.VERSION);
+        write(footer.flip());
+        long size = channel.position();
+        if (size > 0xFFFFFFFFL) {
+            throw new IOException("Package larger than 4 GB: " + target);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(PckArchive.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(PckArchive.HEADER_MAGIC_1).putInt((int) size).putInt(PckArchive.HEADER_MAGIC_2);
+        channel.write(header.flip(), 0);
+        channel.force(false);
+        channel.close();
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        complete = true;
+    }
+
+    /**
+     * Discards the package unless {@link #finish()} completed.
+     */
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        if (!complete) {
+            channel.close();
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void addRecord(String name, long offset, int size, int storedSize) throws IOException {
+        if (offset + storedSize > 0xFFFFFFFFL) {
+            throw new IOException("Package larger than 4 GB: " + target);
+        }
+        byte[] record = PckArchive.entryRecord(name, offset, size, storedSize);
+        byte[] stored = deflate(deflater, record);
+        ByteBuffer length = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        length.putInt(stored.length ^ PckArchive.KEY_1).putInt(stored.length ^ PckArchive.KEY_2);
+        table.write(length.array());
+        table.write(stored);
+        count++;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Returns the zlib stream of content, or content itself when compressing does not make it smaller
+    private static byte[] deflate(Deflater deflater, byte[] content) {
+        deflater.reset();
+        deflater.setInput(content);
+        deflater.finish();
+        byte[] buffer = new byte[Math.max(64, content.length)];
+        int length = 0;
+        while (!deflater.finished() && length < buffer.length) {
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        return deflater.finished() && length < content.length ? Arrays.copyOf(buffer, length) : content;
+    }
+}
@@ -0,0 +1,188 @@
+package itrans;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * The translated tree of an earlier client version, used as memory when a
+ * new version is translated. The earlier source and its translated output
+ * are lined up file by file, by relative path, and string by string, by
+ * position, so whatever the output holds, hand edits included, is reused
+ * for every string of the new version whose source did not change. Only
+ * strings that are new or were changed by the patch are left to translate.
+ * <p>
+ * A string is looked up at the same position of the same file first, then
+ * by its text in the same file, then by its text anywhere in the earlier
+ * tree. Files whose output does not have the same number of strings as
+ * their source are left out, and so are files the output folder's manifest
+ * records as unfinished or made from another source. Without a manifest, an
+ * output string still equal to its source may be one that failed, so it is
+ * not reused.
+ */
+public final class PreviousTranslation {
+    // Masked source texts of one file and their translations by position, null where nothing is reused
+    private record AlignedFile(String[] texts, String[] translations, Map<String, String> byText) {
+    }
+
+    private final Map<Path, AlignedFile> files;
+    private final Map<String, String> texts; // First translation of each masked source text, in path order
+    private final int unalignedFiles;
+
+    private PreviousTranslation(Map<Path, AlignedFile> files, Map<String, String> texts, int unalignedFiles) {
+        this.files = files;
+        this.texts = texts;
+        this.unalignedFiles = unalignedFiles;
+    }
+
+    /**
+     * Lines up {@code source}, read once, with the output of each language.
+     *
+     * @param outputs the earlier output of each language, null where there is none
+     * @param manifests the manifest of each output, null where there is none
+     * @return one earlier translation per language, null where the output is null
+     */
+    public static List<PreviousTranslation> read(InterfaceTree source, List<InterfaceTree> outputs, List<JobManifest> manifests,
+            List<String> languages, Glossary glossary, ParallelExecutor executor) throws IOException {
+        List<Set<Path>> outputFiles = new ArrayList<>(outputs.size());
+        for (InterfaceTree output : outputs) {
+            outputFiles.add(output == null ? Set.of() : new HashSet<>(output.list()));
+        }
+        Map<String, String> masked = new ConcurrentHashMap<>(); // The same raw string is masked only once
+        List<Path> paths = source.list();
+        List<AlignedFile[]> aligned = executor.map(paths, relativePath -> {
+            AlignedFile[] languageFiles = new AlignedFile[outputs.size()];
+            List<InterfaceScan.Segment> sourceSegments = null;
+            String hash = null;
+            for (int l = 0; l < outputs.size(); l++) {
+                if (!outputFiles.get(l).contains(relativePath)) {
+                    continue;
+                }
+                if (sourceSegments == null) {
+                    try (InterfaceFile file = source.read(relativePath)) {
+                        sourceSegments = InterfaceScan.extract(file, UnaryOperator.identity());
+                        hash = file.hash();
+                    }
+                }
+                JobManifest.State state = manifests.get(l) == null ? null
+                        : manifests.get(l).getState(relativePath, languages.get(l), hash);
+                if (state == JobManifest.State.PENDING) {
+                    continue;
+                }
+                List<InterfaceScan.Segment> outputSegments;
+                try (InterfaceFile file = outputs.get(l).read(relativePath)) {
+                    outputSegments = InterfaceScan.extract(file, UnaryOperator.identity());
+                }
+                languageFiles[l] = align(sourceSegments, outputSegments, state == JobManifest.State.DONE,
+                        raw -> masked.computeIfAbsent(raw, glossary::mask));
+            }
+            return languageFiles;
+        });
+
+        List<PreviousTranslation> previous = new ArrayList<>(outputs.size());
+        for (int l = 0; l < outputs.size(); l++) {
+            if (outputs.get(l) == null) {
+                previous.add(null);
+                continue;
+            }
+            Map<Path, AlignedFile> files = new HashMap<>();
+            Map<String, String> texts = new HashMap<>();
+            int unalignedFiles = 0;
+            for (int f = 0; f < paths.size(); f++) {
+                AlignedFile file = aligned.get(f)[l];
+                if (file == null) {
+                    continue;
+                }
+                if (file.texts() == null) {
+                    unalignedFiles++;
+                    continue;
+                }
+                files.put(paths.get(f), file);
+                for (int i = 0; i < file.texts().length; i++) {
+                    if (file.translations()[i] != null) {
+                        texts.putIfAbsent(file.texts()[i], file.translations()[i]);
+                    }
+                }
+            }
+            previous.add(new PreviousTranslation(files, texts, unalignedFiles));
+        }
+        return previous;
+    }
+
+    // Pairs the strings of a source file with those of its output; a file without texts when they do not line up
+    private static AlignedFile align(List<InterfaceScan.Segment> source, List<InterfaceScan.Segment> output, boolean complete,
+            UnaryOperator<String> mask) {
+        if (source.size() != output.size()) {
+            return new AlignedFile(null, null, Map.of());
+        }
+        String[] texts = new String[source.size()];
+        String[] translations = new String[source.size()];
+        Map<String, String> byText = new LinkedHashMap<>();
+        for (int i = 0; i < texts.length; i++) {
+            String raw = source.get(i).text();
+            String translated = output.get(i).text();
+            texts[i] = mask.apply(raw);
+            if (complete || !translated.equals(raw)) {
+                translations[i] = translated;
+                byText.putIfAbsent(texts[i], translated);
+            }
+        }
+        return new AlignedFile(texts, translations, byText);
+    }
+
+    /**
+     * Returns true when an earlier translation of the masked {@code text} exists.
+     */
+    public boolean contains(String text) {
+        return texts.containsKey(text);
+    }
+
+    /**
+     * Returns the earlier translation of the masked {@code text} found at
+     * {@code index} among the strings of the file at {@code relativePath},
+     * or null when there is none.
+     */
+    public String get(Path relativePath, int index, String text) {
+        AlignedFile file = files.get(relativePath);
+        if (file != null) {
+            if (index < file.texts().length && text.equals(file.texts()[index]) && file.translations()[index] != null) {
+                return file.translations()[index];
+            }
+            String translated = file.byText().get(text);
+            if (translated != null) {
+                return translated;
+            }
+        }
+        return texts.get(text);
+    }
+
+    /**
+     * Returns the earlier translation of the masked {@code text}, from
+     * whichever file had it first, or null when there is none.
+     */
+    public String get(String text) {
+        return texts.get(text);
+    }
+
+    /**
+     * Number of distinct source texts with an earlier translation.
+     */
+    public int size() {
+        return texts.size();
+    }
+
+    /**
+     * Number of files left out because their output did not line up with their source.
+     */
+    public int getUnalignedFiles() {
+        return unalignedFiles;
+    }
+}
@@ -0,0 +1,33 @@
+package itrans;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Passes every request through a shared {@link RateLimiter} before handing it
+ * to the wrapped backend.
+ */
+public class RateLimitedBackend implements TranslationBackend {
+    private final TranslationBackend backend;
+    private final RateLimiter limiter;
+
+    public RateLimitedBackend(TranslationBackend backend, RateLimiter limiter) {
+        this.backend = backend;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public String translate(String text, String targetLanguage) throws IOException {
+        try {
+            limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+        }
+        return backend.translate(text, targetLanguage);
+    }
+
+    public RateLimiter getLimiter() {
+        return limiter;
+    }
+}
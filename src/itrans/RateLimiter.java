@@ -0,0 +1,74 @@
+package itrans;
+
+/**
+ * Token bucket shared by every request of every job, so adding threads can
+ * never push the request rate past what the provider tolerates.
+ */
+public class RateLimiter {
+    private final double burst;
+    private double permitsPerSecond;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+    private long pausedUntil = lastRefill;
+
+    public RateLimiter(double permitsPerSecond, double burst) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+    }
+
+    /**
+     * Creates a limiter from the {@code requestsPerSecond} and {@code requestBurst}
+     * keys of config.ini. A rate of 0 or less disables the limit.
+     */
+    public static RateLimiter fromConfig(TranslatorConfig config) {
+        int rate = config.getInt("requestsPerSecond", 5);
+        return new RateLimiter(rate <= 0 ? Double.POSITIVE_INFINITY : rate, config.getInt("requestBurst", Math.max(1, rate)));
+    }
+
+    /**
+     * Blocks until a request may be sent. Callers are served in the order they
+     * arrive: each one reserves a token, going into debt if needed, and sleeps
+     * until the debt is paid off.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            tokens -= 1;
+            long pause = Math.max(0, pausedUntil - lastRefill);
+            if (tokens >= 0 && pause == 0) {
+                return;
+            }
+            waitNanos = pause + (tokens >= 0 ? 0 : (long) (-tokens / permitsPerSecond * 1_000_000_000L));
+        }
+        Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+    }
+
+    /**
+     * Holds every request back for {@code millis}, as asked by a server's
+     * {@code Retry-After}. A shorter pause never cuts a longer one short.
+     */
+    public synchronized void pause(long millis) {
+        pausedUntil = Math.max(pausedUntil, System.nanoTime() + millis * 1_000_000L);
+    }
+
+    public synchronized double getRate() {
+        return permitsPerSecond;
+    }
+
+    public synchronized void setRate(double permitsPerSecond) {
+        refill();
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (Double.isInfinite(permitsPerSecond)) {
+            tokens = burst;
+        } else {
+            tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * permitsPerSecond);
+        }
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,136 @@
+package itrans;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries transient failures of the wrapped backend. Each retry waits a
+ * random time up to an exponentially growing bound (full jitter), or at
+ * least as long as the server's {@code Retry-After}. Throttling answers also
+ * slow down the shared rate through an {@link AdaptiveThrottle}, and a
+ * {@link CircuitBreaker} pauses every request while the service is down.
+ * Fatal errors, like a request the service rejects, fail at once.
+ */
+public class ResilientBackend implements TranslationBackend {
+    private final TranslationBackend backend;
+    private final AdaptiveThrottle throttle;
+    private final CircuitBreaker breaker;
+    private final JobMetrics metrics;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private volatile JobLog log = new JobLog();
+
+    public ResilientBackend(TranslationBackend backend, AdaptiveThrottle throttle, CircuitBreaker breaker, JobMetrics metrics,
+            int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.backend = backend;
+        this.throttle = throttle;
+        this.breaker = breaker;
+        this.metrics = metrics;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Creates the retry policy from the {@code retryMaxAttempts},
+     * {@code retryBaseDelayMs} and {@code retryMaxDelayMs} keys of config.ini.
+     */
+    public static ResilientBackend fromConfig(TranslationBackend backend, AdaptiveThrottle throttle, CircuitBreaker breaker,
+            JobMetrics metrics, TranslatorConfig config) {
+        return new ResilientBackend(backend, throttle, breaker, metrics, config.getInt("retryMaxAttempts", 4),
+                config.getInt("retryBaseDelayMs", 500), config.getInt("retryMaxDelayMs", 30000));
+    }
+
+    /**
+     * Sets where retries and pauses are reported.
+     */
+    public void setLog(JobLog log) {
+        this.log = log;
+        breaker.setLog(log);
+    }
+
+    @Override
+    public String translate(String text, String targetLanguage) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                breaker.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while the translation service was paused");
+            }
+            try {
+                String translated = backend.translate(text, targetLanguage);
+                breaker.onSuccess();
+                throttle.onSuccess();
+                return translated;
+            } catch (IOException e) {
+                if (!isRetryable(e)) {
+                    breaker.release();
+                    throw e;
+                }
+                breaker.onFailure();
+                long retryAfter = 0;
+                if (e instanceof TranslationException failure && failure.isThrottled()) {
+                    retryAfter = failure.getRetryAfterMillis();
+                    throttle.onThrottled(retryAfter);
+                }
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                long delay = Math.max(retryAfter, backoff(attempt));
+                metrics.recordRetry();
+                if (log.isEnabled(LogLevel.DEBUG)) {
+                    log.debug("Retrying in " + delay + " ms (attempt " + (attempt + 1) + " of " + maxAttempts + "): " + e.getMessage());
+                }
+                sleep(delay);
+            } catch (RuntimeException | Error e) {
+                // Without a verdict a probe would keep every other request waiting
+                breaker.release();
+                throw e;
+            }
+        }
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    public AdaptiveThrottle getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Transient errors are worth another attempt: throttling, server errors,
+     * timeouts and dropped connections. An interrupted job never retries.
+     */
+    static boolean isRetryable(IOException e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        if (e instanceof TranslationException failure) {
+            return failure.isRetryable();
+        }
+        if (e instanceof InterruptedIOException) {
+            return e instanceof SocketTimeoutException;
+        }
+        return true;
+    }
+
+    // Full jitter: anything between 0 and base * 2^(attempt - 1), capped
+    private long backoff(int attempt) {
+        long bound = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+}
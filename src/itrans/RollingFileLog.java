@@ -0,0 +1,146 @@
+package itrans;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Full-detail log file written by a background thread. Workers only queue the
+ * line and never wait for the disk; the file is rolled over to
+ * {@code name.1 .. name.N} when it grows past the size limit. When the queue
+ * is full, lines are dropped and counted, and once the file cannot be written
+ * any more, later lines are dropped at once.
+ */
+public class RollingFileLog implements LogSink, Closeable {
+    private static final String END = new String("end"); // Unique marker, compared by identity
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>(65536);
+    private final Thread writerThread;
+    private final AtomicLong dropped = new AtomicLong(); // Since the last line written
+    private volatile boolean disabled;
+    private BufferedWriter writer;
+    private long size;
+
+    public RollingFileLog(Path file, long maxBytes, int maxFiles) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        openWriter();
+        writerThread = new Thread(this::drain, "itrans-file-log");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Opens the log file named by the {@code logFile} key of config.ini, rolling
+     * at {@code logFileMaxBytes} and keeping {@code logFileCount} old files.
+     */
+    public static RollingFileLog fromConfig(TranslatorConfig config) throws IOException {
+        return new RollingFileLog(config.resolve("logFile", "itrans.log"),
+                config.getInt("logFileMaxBytes", 10 * 1024 * 1024),
+                config.getInt("logFileCount", 5));
+    }
+
+    @Override
+    public void write(LogLevel level, String message) {
+        if (disabled) {
+            return;
+        }
+        String line = LocalDateTime.now().format(TIMESTAMP) + " " + level + " " + message.replace("\n", " ").trim();
+        if (!queue.offer(line)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        List<String> lines = new ArrayList<>(256);
+        try {
+            while (true) {
+                lines.add(queue.take());
+                queue.drainTo(lines, 4096);
+                for (String line : lines) {
+                    if (line == END) {
+                        writer.flush();
+                        return;
+                    }
+                    writeLine(line);
+                }
+                lines.clear();
+                long lost = dropped.getAndSet(0);
+                if (lost > 0) {
+                    writeLine(LocalDateTime.now().format(TIMESTAMP) + " " + LogLevel.WARN + " " + lost
+                            + " log lines dropped, the log file could not keep up");
+                }
+                writer.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            disabled = true;
+            System.err.println("Log file disabled: " + e.getMessage());
+            queue.clear();
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        if (size > maxBytes) {
+            roll();
+        }
+        writer.write(line);
+        writer.newLine();
+        size += line.length() + 1;
+    }
+
+    private void roll() throws IOException {
+        writer.close();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path older = file.resolveSibling(file.getFileName() + "." + i);
+            if (Files.exists(older)) {
+                Files.move(older, file.resolveSibling(file.getFileName() + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        openWriter();
+    }
+
+    private void openWriter() throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        size = Files.size(file);
+    }
+
+    /**
+     * Writes the queued lines and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!disabled && queue.offer(END, 5, TimeUnit.SECONDS)) {
+                writerThread.join(5000);
+            }
+            disabled = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+    }
+}
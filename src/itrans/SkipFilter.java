@@ -0,0 +1,85 @@
+package itrans;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Decides locally which strings are not worth a request: values without a
+ * word in them (empty, numbers, markup only), values matching the
+ * {@code skipPattern} of config.ini, and values already written in the
+ * target language, as told by the bundled {@link LanguageDetector}. A kept
+ * string is written back as it is, with its glossary terms replaced.
+ */
+public class SkipFilter {
+    private static final double MIN_MARGIN = 0.15;
+
+    /** Why a string is kept as it is. */
+    public enum Reason {
+        NO_WORDS("without words"),
+        PATTERN("matching skipPattern"),
+        TRANSLATED("already in the target language");
+
+        private final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final Pattern pattern;
+    private final LanguageDetector detector;
+    private final int minLetters;
+
+    /**
+     * @param pattern values that match it as a whole, as they stand in the file, are kept, may be null
+     * @param detector recognises values already in the target language, null to translate them anyway
+     * @param minLetters fewer letters than this are too few to tell languages of the same script apart
+     */
+    public SkipFilter(Pattern pattern, LanguageDetector detector, int minLetters) {
+        this.pattern = pattern;
+        this.detector = detector;
+        this.minLetters = minLetters;
+    }
+
+    /**
+     * Creates the filter described by the {@code skipPattern},
+     * {@code skipTranslated} and {@code skipMinLetters} keys of config.ini.
+     */
+    public static SkipFilter fromConfig(TranslatorConfig config) throws IOException {
+        Pattern pattern = null;
+        String regex = config.getString("skipPattern", null);
+        if (regex != null) {
+            try {
+                pattern = Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                throw new IOException("Invalid skipPattern: " + e.getDescription());
+            }
+        }
+        LanguageDetector detector = config.getBoolean("skipTranslated", true) ? LanguageDetector.load(MIN_MARGIN) : null;
+        return new SkipFilter(pattern, detector, config.getInt("skipMinLetters", 12));
+    }
+
+    /**
+     * Returns why a value needs no translation into {@code language}, or null
+     * when it does. The {@code skipPattern} sees {@code value} as it stands in
+     * the file, glossary terms included; the other checks use its masked
+     * form taken apart as {@code template}.
+     */
+    public Reason check(String value, MarkupTokenizer.Template template, String language) {
+        if (!template.isTranslatable()) {
+            return Reason.NO_WORDS;
+        }
+        if (pattern != null && pattern.matcher(value).matches()) {
+            return Reason.PATTERN;
+        }
+        if (detector != null && detector.isWrittenIn(template.run(), language, minLetters)) {
+            return Reason.TRANSLATED;
+        }
+        return null;
+    }
+}
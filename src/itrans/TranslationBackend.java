@@ -0,0 +1,16 @@
+package itrans;
+
+import java.io.IOException;
+
+/**
+ * A translation provider. One instance is shared by the whole job, so
+ * implementations must be safe to call from several threads.
+ */
+public interface TranslationBackend {
+
+    /**
+     * Translates {@code text} into {@code targetLanguage}, detecting the source
+     * language automatically.
+     */
+    String translate(String text, String targetLanguage) throws IOException;
+}
@@ -0,0 +1,103 @@
+package itrans;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs many short strings into a single backend request. The strings are
+ * joined with line breaks, which the translation service keeps in place, and
+ * the response is split on the same line breaks. When the line count does not
+ * survive the round trip the batch is halved until it does, so a bad batch
+ * costs a few extra requests instead of misplaced translations.
+ */
+public class TranslationBatcher {
+    public static final String DELIMITER = "\n";
+
+    private final TranslationBackend backend;
+    private final int maxChars;
+    private final int maxUrlLength;
+
+    public TranslationBatcher(TranslationBackend backend, int maxChars, int maxUrlLength) {
+        this.backend = backend;
+        this.maxChars = maxChars;
+        this.maxUrlLength = maxUrlLength;
+    }
+
+    /**
+     * Creates a batcher from the {@code batchMaxChars} and {@code batchMaxUrlLength}
+     * keys of config.ini.
+     */
+    public static TranslationBatcher fromConfig(TranslationBackend backend, TranslatorConfig config) {
+        return new TranslationBatcher(backend,
+                config.getInt("batchMaxChars", 4500),
+                config.getInt("batchMaxUrlLength", 12000));
+    }
+
+    /**
+     * Splits {@code texts} into consecutive batches that fit the character and
+     * URL budget. A text that does not fit on its own gets a batch of its own.
+     */
+    public List<List<String>> split(List<String> texts) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int chars = 0;
+        int urlLength = 0;
+        for (String text : texts) {
+            int textUrlLength = encodedLength(text);
+            boolean isolated = text.contains(DELIMITER);
+            if (!current.isEmpty() && (isolated
+                    || chars + DELIMITER.length() + text.length() > maxChars
+                    || urlLength + 3 + textUrlLength > maxUrlLength)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                chars = 0;
+                urlLength = 0;
+            }
+            current.add(text);
+            chars += text.length() + (current.size() > 1 ? DELIMITER.length() : 0);
+            urlLength += textUrlLength + (current.size() > 1 ? 3 : 0); // "%0A" per delimiter
+            if (isolated) {
+                batches.add(current);
+                current = new ArrayList<>();
+                chars = 0;
+                urlLength = 0;
+            }
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /**
+     * Translates one batch with a single request where possible.
+     */
+    public List<String> translateBatch(List<String> batch, String targetLanguage) throws IOException {
+        if (batch.size() == 1) {
+            return List.of(backend.translate(batch.get(0), targetLanguage));
+        }
+        String translated = backend.translate(String.join(DELIMITER, batch), targetLanguage);
+        String[] lines = translated.split(DELIMITER, -1);
+        if (lines.length == batch.size()) {
+            List<String> results = new ArrayList<>(lines.length);
+            for (String line : lines) {
+                results.add(line.trim());
+            }
+            return results;
+        }
+
+        // The service merged or split lines, retry both halves separately
+        int half = batch.size() / 2;
+        List<String> results = new ArrayList<>(batch.size());
+        results.addAll(translateBatch(batch.subList(0, half), targetLanguage));
+        results.addAll(translateBatch(batch.subList(half, batch.size()), targetLanguage));
+        return results;
+    }
+
+    private static int encodedLength(String text) {
+        return URLEncoder.encode(text, StandardCharsets.UTF_8).length();
+    }
+}
@@ -0,0 +1,133 @@
+package itrans;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Everything that outlives a single job: the configuration, the rate-limited
+ * and retrying backend with its pooled connections, the batcher, the
+ * translation memory and the skip filter. The window and the command line
+ * both create one engine and run their jobs through it.
+ */
+public class TranslationEngine implements Closeable {
+    private final TranslatorConfig config;
+    private final ResilientBackend backend;
+    private final TranslationBatcher batcher;
+    private final TranslationMemory memory;
+    private final SkipFilter skipFilter;
+    private final RollingFileLog fileLog;
+    private final JobMetrics metrics;
+    private final int parallelism;
+
+    private TranslationEngine(TranslatorConfig config, ResilientBackend backend, TranslationMemory memory, SkipFilter skipFilter,
+            RollingFileLog fileLog, JobMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        this.backend = backend;
+        this.batcher = TranslationBatcher.fromConfig(backend, config);
+        this.memory = memory;
+        this.skipFilter = skipFilter;
+        this.fileLog = fileLog;
+        this.parallelism = config.getInt("parallelism", 8);
+    }
+
+    /**
+     * Creates the engine described by config.ini. A translation memory that
+     * cannot be opened is reported to {@code warnings} and left out.
+     */
+    public static TranslationEngine create(TranslatorConfig config, Consumer<String> warnings) {
+        JobMetrics metrics = new JobMetrics();
+        metrics.register();
+        RateLimiter limiter = RateLimiter.fromConfig(config);
+        ResilientBackend backend = ResilientBackend.fromConfig(
+                new RateLimitedBackend(new MeteredBackend(GoogleTranslationBackend.fromConfig(config), metrics), limiter),
+                AdaptiveThrottle.fromConfig(limiter, config), CircuitBreaker.fromConfig(config), metrics, config);
+        TranslationMemory memory = null;
+        try {
+            memory = TranslationMemory.fromConfig(config);
+        } catch (IOException e) {
+            warnings.accept("Failed to open translation memory: " + e.getMessage());
+        }
+        SkipFilter skipFilter = null;
+        try {
+            skipFilter = SkipFilter.fromConfig(config);
+        } catch (IOException e) {
+            warnings.accept("Failed to set up the skip filter, every string is sent: " + e.getMessage());
+        }
+        RollingFileLog fileLog = null;
+        try {
+            fileLog = RollingFileLog.fromConfig(config);
+        } catch (IOException e) {
+            warnings.accept("Failed to open log file: " + e.getMessage());
+        }
+        return new TranslationEngine(config, backend, memory, skipFilter, fileLog, metrics);
+    }
+
+    /**
+     * Creates a log that already writes to the log file at the {@code fileLogLevel}
+     * of config.ini; callers add their own sinks for the screen.
+     */
+    public JobLog createLog() {
+        JobLog log = new JobLog();
+        if (fileLog != null) {
+            log.addSink(LogLevel.parse(config.getString("fileLogLevel", null), LogLevel.DEBUG), fileLog);
+        }
+        return log;
+    }
+
+    /**
+     * Returns the verbosity for the screen, the {@code logLevel} key of config.ini.
+     */
+    public LogLevel getLogLevel() {
+        return LogLevel.parse(config.getString("logLevel", null), LogLevel.INFO);
+    }
+
+    /**
+     * Creates a job that uses this engine's backend and memory. Jobs of one
+     * engine run one at a time: the backend reports to the log of the latest
+     * job, and its metrics are those of the latest job.
+     */
+    public TranslationJob createJob(Glossary glossary, JobLog log) {
+        TranslationJob job = new TranslationJob(glossary, batcher, memory, log);
+        job.setParallelism(parallelism);
+        job.setExpectedThroughput(config.getInt("requestsPerSecond", 5), config.getInt("expectedLatencyMs", 500));
+        job.setMetrics(metrics);
+        job.setSkipFilter(skipFilter);
+        backend.setLog(log);
+        backend.getBreaker().startJob();
+        return job;
+    }
+
+    public TranslatorConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the metrics of the latest job, also published over JMX.
+     */
+    public JobMetrics getMetrics() {
+        return metrics;
+    }
+
+    public ResilientBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Returns the translation memory, or null when it could not be opened.
+     */
+    public TranslationMemory getMemory() {
+        return memory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (memory != null) {
+            memory.close();
+        }
+        if (fileLog != null) {
+            fileLog.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package itrans;
+
+import java.io.IOException;
+
+/**
+ * A request the translation service answered with an error status. Whether it
+ * is worth sending again depends on the status: throttling and server errors
+ * pass, anything else about the request itself does not.
+ */
+public class TranslationException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final boolean retryable;
+    private final long retryAfterMillis;
+
+    public TranslationException(String message, int statusCode, boolean retryable, long retryAfterMillis) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryable = retryable;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Classifies an HTTP status: 408, 425, 429 and 5xx are transient, other
+     * statuses are fatal.
+     *
+     * @param retryAfterMillis the wait the server asked for, 0 when it did not
+     */
+    public static TranslationException forStatus(int statusCode, long retryAfterMillis, String endpoint) {
+        boolean retryable = statusCode == 408 || statusCode == 425 || statusCode == 429 || statusCode >= 500;
+        return new TranslationException("Server returned HTTP " + statusCode + " for " + endpoint,
+                statusCode, retryable, retryAfterMillis);
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    /**
+     * True when the server said we are sending too fast.
+     */
+    public boolean isThrottled() {
+        return statusCode == 429 || statusCode == 503 && retryAfterMillis > 0;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,944 @@
+package itrans;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Translates an interface tree in two phases: the whole tree is scanned for
+ * unique strings first, each unique string is translated once, and the
+ * results are fanned back out to every file while writing the output tree.
+ * Files and requests of each phase are processed concurrently on virtual
+ * threads, at most {@link #setParallelism(int) parallelism} at a time. A job
+ * may translate into several languages: the tree is still scanned once and
+ * the requests of all languages go through the backend together.
+ * <p>
+ * Progress is kept in a {@link JobManifest} in the output folder: files that
+ * are already translated from the same input and glossary are skipped, and
+ * files that were not finished, or kept an untranslated string because a
+ * request failed, are picked up again by the next run.
+ * <p>
+ * The input may also be an interfaces.pck archive. The job then writes a new
+ * archive with the translated files; every other entry is copied over as it
+ * is stored, without being decompressed. Archives are always translated as a
+ * whole, so no manifest is kept for them.
+ */
+public class TranslationJob {
+    public static final String METRICS_FILE_NAME = "metrics.json"; // In the state folder of the output, see JobManifest
+    private static final String LEGACY_METRICS_FILE_NAME = ".itrans-metrics.json"; // Where earlier versions wrote it
+
+    private final Glossary glossary;
+    private final TranslationBatcher batcher;
+    private final TranslationMemory memory;
+    private final JobLog log;
+    private int parallelism = 8;
+    private double requestsPerSecond = 5;
+    private double expectedLatencyMillis = 500;
+    private JobMetrics metrics = new JobMetrics();
+    private SkipFilter skipFilter;
+    private Path previousInput;
+    private Path previousOutput;
+    private final AtomicInteger loggedProgress = new AtomicInteger(); // Tenths of the strings already logged
+
+    /**
+     * @param memory translation memory to consult first, may be null
+     * @param log receives progress messages
+     */
+    public TranslationJob(Glossary glossary, TranslationBatcher batcher, TranslationMemory memory, JobLog log) {
+        this.glossary = glossary;
+        this.batcher = batcher;
+        this.memory = memory;
+        this.log = log;
+    }
+
+    /**
+     * Sets how many files or requests may be processed at the same time.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the request rate limit and the latency to assume per request when
+     * nothing was measured yet, both only used by {@link #estimate}. A rate
+     * of 0 means no limit.
+     */
+    public void setExpectedThroughput(double requestsPerSecond, double expectedLatencyMillis) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.expectedLatencyMillis = expectedLatencyMillis;
+    }
+
+    /**
+     * Sets the metrics the job reports into; they are reset when the job starts.
+     */
+    public void setMetrics(JobMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public JobMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the filter that keeps strings as they are instead of sending them,
+     * null to send every string that has a word in it.
+     */
+    public void setSkipFilter(SkipFilter skipFilter) {
+        this.skipFilter = skipFilter;
+    }
+
+    /**
+     * Makes the job reuse what an earlier job wrote for an earlier version of
+     * the client: {@code previousInput} is the earlier source, a folder or
+     * interfaces.pck, and {@code previousOutput} its translation, given the
+     * way {@code output} is given to {@link #run(Path, Path, List)}. Every
+     * string whose source did not change keeps its earlier translation, hand
+     * edits included, so only new and changed strings are sent; see
+     * {@link PreviousTranslation}. Null turns it off.
+     */
+    public void setPreviousVersion(Path previousInput, Path previousOutput) {
+        this.previousInput = previousInput;
+        this.previousOutput = previousOutput;
+    }
+
+    /**
+     * Translates {@code input}, a folder or an interfaces.pck archive. The
+     * translation of an archive is written to {@code output} when that ends
+     * in .pck, and to an archive of the same name inside it otherwise.
+     */
+    public JobSummary run(Path input, Path output, String targetLanguage) throws IOException {
+        return run(input, output, List.of(targetLanguage)).get(0);
+    }
+
+    /**
+     * Translates {@code input} into several languages at once. The input is
+     * read and masked only once and the requests of all languages share the
+     * backend, so each extra language costs little more than its requests.
+     * With more than one language every language is written below its own
+     * sub folder of {@code output}, see {@link #languageOutput}.
+     *
+     * @return one summary per language, in the order given
+     */
+    public List<JobSummary> run(Path input, Path output, List<String> targetLanguages) throws IOException {
+        if (targetLanguages.isEmpty()) {
+            throw new IllegalArgumentException("No target language");
+        }
+        if (PckArchive.isArchive(input)) {
+            return runArchive(input, output, targetLanguages);
+        }
+        return runFolder(InterfaceTree.folder(input), output, targetLanguages);
+    }
+
+    /**
+     * Translates only the listed files of {@code inputFolder}, given relative
+     * to it, the way {@link #run(Path, Path, List)} translates the whole
+     * folder; the rest of the output is left alone. Listed files that no
+     * longer exist are ignored.
+     */
+    public List<JobSummary> run(Path inputFolder, Collection<Path> relativePaths, Path output, List<String> targetLanguages)
+            throws IOException {
+        if (targetLanguages.isEmpty()) {
+            throw new IllegalArgumentException("No target language");
+        }
+        return runFolder(InterfaceTree.files(inputFolder, relativePaths), output, targetLanguages);
+    }
+
+    /**
+     * Returns where the translation into {@code language} goes: {@code output}
+     * itself for a single language, otherwise a sub folder named after the
+     * language, next to {@code output} when that names a .pck archive.
+     */
+    public static Path languageOutput(Path output, String language, int languageCount) {
+        if (languageCount == 1) {
+            return output;
+        }
+        if (isArchiveName(output)) {
+            return output.resolveSibling(language).resolve(output.getFileName().toString());
+        }
+        return output.resolve(language);
+    }
+
+    private static boolean isArchiveName(Path path) {
+        return path.toString().toLowerCase(Locale.ROOT).endsWith(".pck");
+    }
+
+    private List<JobSummary> runFolder(InterfaceTree input, Path output, List<String> targetLanguages) throws IOException {
+        long started = System.nanoTime();
+        metrics.start();
+        String glossaryHash = glossary.fingerprint();
+        List<Path> outputFolders = new ArrayList<>(targetLanguages.size());
+        List<JobManifest> manifests = new ArrayList<>(targetLanguages.size());
+        try (ParallelExecutor executor = new ParallelExecutor(parallelism)) {
+            for (String language : targetLanguages) {
+                Path outputFolder = languageOutput(output, language, targetLanguages.size());
+                outputFolders.add(outputFolder);
+                manifests.add(JobManifest.open(outputFolder));
+            }
+
+            // Phase 1: collect the unique strings of the files that are not up to date in every language yet
+            InterfaceScan scan = InterfaceScan.scan(input, glossary, executor, (relativePath, hash) -> {
+                for (int l = 0; l < targetLanguages.size(); l++) {
+                    if (!isUpToDate(manifests.get(l), outputFolders.get(l), relativePath, targetLanguages.get(l), hash, glossaryHash)) {
+                        return false;
+                    }
+                }
+                return true;
+            }, metrics);
+            if (scan.getSkippedCount() > 0) {
+                log.info("Skipped " + scan.getSkippedCount() + " files that are already up to date");
+            }
+            log.info("Found " + scan.getSegmentCount() + " strings in " + scan.getFiles().size() + " files, "
+                    + scan.getUniqueTexts().size() + " unique");
+            // Before anything is marked pending, the output folder may hold the earlier version itself
+            List<PreviousTranslation> previous = readPrevious(targetLanguages, executor);
+
+            // A file still up to date in one of the languages is not written again for it
+            List<List<InterfaceScan.SourceFile>> languageFiles = new ArrayList<>(targetLanguages.size());
+            for (int l = 0; l < targetLanguages.size(); l++) {
+                List<InterfaceScan.SourceFile> files = new ArrayList<>(scan.getFiles().size());
+                for (InterfaceScan.SourceFile file : scan.getFiles()) {
+                    if (!isUpToDate(manifests.get(l), outputFolders.get(l), file.getRelativePath(), targetLanguages.get(l),
+                            file.getHash(), glossaryHash)) {
+                        files.add(file);
+                    }
+                }
+                manifests.get(l).markPending(files, targetLanguages.get(l), glossaryHash);
+                languageFiles.add(files);
+            }
+
+            // Phase 2: translate every unique string once per language, only those of the files it still needs,
+            // and write each file as soon as the last of its strings is done
+            List<AtomicInteger> failedFiles = new ArrayList<>(targetLanguages.size());
+            for (int l = 0; l < targetLanguages.size(); l++) {
+                failedFiles.add(new AtomicInteger());
+            }
+            List<LanguageWork> work = translateUnique(languageFiles, targetLanguages, previous, executor, (translated, file) -> {
+                int l = translated.index;
+                boolean complete = writeFile(file, outputFolders.get(l).resolve(file.getRelativePath().toString()), translated);
+                if (complete) {
+                    manifests.get(l).markDone(file, translated.language, glossaryHash);
+                } else {
+                    failedFiles.get(l).incrementAndGet();
+                }
+            });
+
+            List<JobSummary> summaries = new ArrayList<>(targetLanguages.size());
+            for (LanguageWork translated : work) {
+                List<InterfaceScan.SourceFile> files = languageFiles.get(translated.index);
+                if (!translated.failed.isEmpty()) {
+                    log.warn(translated.failed.size() + " strings could not be translated to " + translated.language
+                            + ", run the job again to retry them");
+                }
+                summaries.add(new JobSummary(translated.language, files.size(), scan.getFiles().size() + scan.getSkippedCount() - files.size(),
+                        segmentCount(files), translated.texts.size(), translated.reused, translated.keptStrings(), translated.savedRequests,
+                        translated.failed.size(), failedFiles.get(translated.index).get(),
+                        (System.nanoTime() - started) / 1_000_000));
+            }
+            if (memory != null) {
+                log.info("Translation memory: " + memory.getHits() + " hits, " + memory.getMisses() + " misses");
+            }
+            reportMetrics(output);
+            return summaries;
+        } finally {
+            IOException closeError = null;
+            for (JobManifest manifest : manifests) {
+                try {
+                    manifest.close();
+                } catch (IOException e) {
+                    closeError = e;
+                }
+            }
+            if (closeError != null) {
+                throw closeError;
+            }
+        }
+    }
+
+    private static boolean isUpToDate(JobManifest manifest, Path outputFolder, Path relativePath, String language, String hash,
+            String glossaryHash) {
+        return manifest.isUpToDate(relativePath, language, hash, glossaryHash)
+                && Files.isRegularFile(outputFolder.resolve(relativePath.toString()));
+    }
+
+    // The earlier translation of each language, all null without an earlier version
+    private List<PreviousTranslation> readPrevious(List<String> targetLanguages, ParallelExecutor executor) throws IOException {
+        if (previousInput == null) {
+            return Collections.nCopies(targetLanguages.size(), null);
+        }
+        long started = System.nanoTime();
+        boolean isArchive = PckArchive.isArchive(previousInput);
+        if (!isArchive && !Files.isDirectory(previousInput)) {
+            throw new IOException("Earlier version not found: " + previousInput.toAbsolutePath());
+        }
+        List<PckArchive> archives = new ArrayList<>();
+        try {
+            InterfaceTree source = isArchive ? open(previousInput, archives) : InterfaceTree.folder(previousInput);
+            List<InterfaceTree> outputs = new ArrayList<>(targetLanguages.size());
+            List<JobManifest> manifests = new ArrayList<>(targetLanguages.size());
+            for (String language : targetLanguages) {
+                Path languageOutput = languageOutput(previousOutput, language, targetLanguages.size());
+                if (isArchive && Files.isDirectory(languageOutput)) {
+                    languageOutput = languageOutput.resolve(previousInput.getFileName().toString());
+                }
+                if (PckArchive.isArchive(languageOutput)) {
+                    outputs.add(open(languageOutput, archives));
+                    manifests.add(null);
+                } else if (Files.isDirectory(languageOutput)) {
+                    outputs.add(InterfaceTree.folder(languageOutput));
+                    manifests.add(JobManifest.read(languageOutput)); // Read only, nothing to close
+                } else {
+                    log.warn("No earlier translation into " + language + " at " + languageOutput.toAbsolutePath());
+                    outputs.add(null);
+                    manifests.add(null);
+                }
+            }
+
+            List<PreviousTranslation> previous = PreviousTranslation.read(source, outputs, manifests, targetLanguages, glossary, executor);
+            for (int l = 0; l < targetLanguages.size(); l++) {
+                if (previous.get(l) == null) {
+                    continue;
+                }
+                log.info("Earlier version: " + previous.get(l).size() + " translated strings into " + targetLanguages.get(l));
+                if (previous.get(l).getUnalignedFiles() > 0) {
+                    log.warn(previous.get(l).getUnalignedFiles() + " earlier " + targetLanguages.get(l)
+                            + " files do not have the same strings as their source and are not reused");
+                }
+            }
+            metrics.addPhaseTime(JobMetrics.Phase.READ, System.nanoTime() - started);
+            return previous;
+        } finally {
+            for (PckArchive archive : archives) {
+                archive.close();
+            }
+        }
+    }
+
+    // Opens an archive and adds it to those to close
+    private static PckArchive open(Path path, List<PckArchive> archives) throws IOException {
+        PckArchive archive = PckArchive.open(path);
+        archives.add(archive);
+        return archive;
+    }
+
+    private static List<String> uniqueTexts(List<InterfaceScan.SourceFile> files) {
+        Set<String> texts = new LinkedHashSet<>();
+        for (InterfaceScan.SourceFile file : files) {
+            for (InterfaceScan.Segment segment : file.getSegments()) {
+                texts.add(segment.text());
+            }
+        }
+        return new ArrayList<>(texts);
+    }
+
+    private static int segmentCount(List<InterfaceScan.SourceFile> files) {
+        int count = 0;
+        for (InterfaceScan.SourceFile file : files) {
+            count += file.getSegments().size();
+        }
+        return count;
+    }
+
+    private List<JobSummary> runArchive(Path input, Path output, List<String> targetLanguages) throws IOException {
+        long started = System.nanoTime();
+        List<Path> outputArchives = new ArrayList<>(targetLanguages.size());
+        for (String language : targetLanguages) {
+            Path languageOutput = languageOutput(output, language, targetLanguages.size());
+            Path outputArchive = isArchiveName(languageOutput) ? languageOutput : languageOutput.resolve(input.getFileName().toString());
+            if (Files.exists(outputArchive) && Files.isSameFile(input, outputArchive)) {
+                throw new IOException("The output archive must not be the input archive: " + input.toAbsolutePath());
+            }
+            outputArchives.add(outputArchive);
+        }
+        metrics.start();
+        try (ParallelExecutor executor = new ParallelExecutor(parallelism);
+                PckArchive archive = PckArchive.open(input)) {
+            // Phase 1: collect the unique strings of every file in the archive
+            InterfaceScan scan = InterfaceScan.scan(archive, glossary, executor, (relativePath, hash) -> false, metrics);
+            log.info("Found " + scan.getSegmentCount() + " strings in " + scan.getFiles().size() + " files of "
+                    + archive.getEntries().size() + " entries, " + scan.getUniqueTexts().size() + " unique");
+            List<PreviousTranslation> previous = readPrevious(targetLanguages, executor);
+
+            // Phase 2: translate every unique string once per language, rewriting and compressing each
+            // file as soon as the last of its strings is done
+            List<AtomicInteger> failedFiles = new ArrayList<>(targetLanguages.size());
+            List<Map<Path, PckWriter.Packed>> packed = new ArrayList<>(targetLanguages.size());
+            for (int l = 0; l < targetLanguages.size(); l++) {
+                failedFiles.add(new AtomicInteger());
+                packed.add(new ConcurrentHashMap<>());
+            }
+            List<LanguageWork> work = translateUnique(Collections.nCopies(targetLanguages.size(), scan.getFiles()), targetLanguages,
+                    previous, executor, (translated, file) -> {
+                        if (!rewriteEntry(archive, file, translated, packed.get(translated.index))) {
+                            failedFiles.get(translated.index).incrementAndGet();
+                        }
+                    });
+
+            // Phase 3: write each archive in entry order
+            List<JobSummary> summaries = new ArrayList<>(targetLanguages.size());
+            for (LanguageWork translated : work) {
+                int l = translated.index;
+                Path outputArchive = outputArchives.get(l);
+                Map<Path, PckWriter.Packed> languagePacked = packed.get(l);
+                long writeStarted = System.nanoTime();
+                try (PckWriter writer = PckWriter.create(outputArchive)) {
+                    for (PckArchive.Entry entry : archive.getEntries()) {
+                        PckWriter.Packed content = languagePacked.get(entry.relativePath());
+                        if (content != null) {
+                            writer.add(entry.name(), content);
+                        } else {
+                            writer.copy(archive, entry);
+                        }
+                    }
+                    writer.finish();
+                }
+                metrics.addPhaseTime(JobMetrics.Phase.WRITE, System.nanoTime() - writeStarted);
+                log.info("Archive saved: " + outputArchive.toAbsolutePath() + " (" + languagePacked.size() + " files translated, "
+                        + (archive.getEntries().size() - languagePacked.size()) + " copied)");
+                languagePacked.clear();
+                if (!translated.failed.isEmpty()) {
+                    log.warn(translated.failed.size() + " strings could not be translated to " + translated.language
+                            + ", run the job again to retry them");
+                }
+                summaries.add(new JobSummary(translated.language, scan.getFiles().size(), 0, scan.getSegmentCount(),
+                        translated.texts.size(), translated.reused, translated.keptStrings(), translated.savedRequests,
+                        translated.failed.size(),
+                        failedFiles.get(l).get(),
+                        (System.nanoTime() - started) / 1_000_000));
+            }
+            if (memory != null) {
+                log.info("Translation memory: " + memory.getHits() + " hits, " + memory.getMisses() + " misses");
+            }
+            reportMetrics(isArchiveName(output) ? output.toAbsolutePath().getParent() : output);
+            return summaries;
+        }
+    }
+
+    /**
+     * Works out what {@link #run(Path, Path, List)} would do with the same
+     * arguments without sending any request or writing any file: the input is
+     * scanned and masked on all cores, files the manifests mark as up to date
+     * and strings the translation memory already holds are left out, and the
+     * rest is split into batches. The expected duration uses the mean request
+     * latency of an earlier job of this session, or of the last run recorded in
+     * the output folder, or else the configured one.
+     */
+    public JobEstimate estimate(Path input, Path output, List<String> targetLanguages) throws IOException {
+        if (targetLanguages.isEmpty()) {
+            throw new IllegalArgumentException("No target language");
+        }
+        long started = System.nanoTime();
+        boolean isArchive = PckArchive.isArchive(input);
+        String glossaryHash = glossary.fingerprint();
+        int threads = Math.max(parallelism, Runtime.getRuntime().availableProcessors());
+        try (ParallelExecutor executor = new ParallelExecutor(threads);
+                PckArchive archive = isArchive ? PckArchive.open(input) : null) {
+            InterfaceScan scan = InterfaceScan.scan(isArchive ? archive : InterfaceTree.folder(input), glossary, executor,
+                    (relativePath, hash) -> false, new JobMetrics());
+            List<PreviousTranslation> previous = readPrevious(targetLanguages, executor);
+            long scanMillis = (System.nanoTime() - started) / 1_000_000;
+
+            // Archives are always translated as a whole, folders only where the manifest says so
+            List<JobEstimate.Language> languages = new ArrayList<>(targetLanguages.size());
+            for (int l = 0; l < targetLanguages.size(); l++) {
+                String language = targetLanguages.get(l);
+                List<InterfaceScan.SourceFile> files = scan.getFiles();
+                if (!isArchive) {
+                    Path outputFolder = languageOutput(output, language, targetLanguages.size());
+                    try (JobManifest manifest = JobManifest.read(outputFolder)) {
+                        files = new ArrayList<>(scan.getFiles().size());
+                        for (InterfaceScan.SourceFile file : scan.getFiles()) {
+                            if (!isUpToDate(manifest, outputFolder, file.getRelativePath(), language, file.getHash(), glossaryHash)) {
+                                files.add(file);
+                            }
+                        }
+                    }
+                }
+                List<String> texts = files.size() == scan.getFiles().size()
+                        ? new ArrayList<>(scan.getUniqueTexts().keySet()) : uniqueTexts(files);
+                int reused = 0;
+                int cached = 0;
+                int kept = 0;
+                long characters = 0;
+                Set<String> missingRuns = new LinkedHashSet<>();
+                Set<String> keptRuns = new LinkedHashSet<>();
+                for (String text : texts) {
+                    if (previous.get(l) != null && previous.get(l).contains(text)) {
+                        reused++;
+                        continue;
+                    }
+                    MarkupTokenizer.Template template = MarkupTokenizer.tokenize(text);
+                    if (!template.isTranslatable()) {
+                        kept++;
+                        if (!text.isEmpty()) {
+                            keptRuns.add(text);
+                        }
+                        continue;
+                    }
+                    if (memory != null && memory.contains(template.run(), language)) {
+                        cached++;
+                    } else if (skipFilter != null && skipFilter.check(glossary.unmask(text), template, language) != null) {
+                        kept++;
+                        keptRuns.add(template.run());
+                    } else if (missingRuns.add(template.run())) {
+                        characters += template.run().length();
+                    }
+                }
+                int requests = batcher.split(new ArrayList<>(missingRuns)).size();
+                languages.add(new JobEstimate.Language(language, files.size(), scan.getFiles().size() - files.size(),
+                        texts.size(), reused, cached, kept, characters, requests, savedRequests(missingRuns, keptRuns, requests)));
+            }
+
+            // A masked term keeps its word inside the placeholder, so the masked texts still count
+            int[] termCounts = new int[glossary.getExcludedWords().size()];
+            int glossaryStrings = 0;
+            for (String masked : scan.getUniqueTexts().keySet()) {
+                if (glossary.countTerms(masked, termCounts) > 0) {
+                    glossaryStrings++;
+                }
+            }
+            Map<String, Integer> glossaryTerms = new LinkedHashMap<>();
+            List<Integer> order = new ArrayList<>();
+            for (int t = 0; t < termCounts.length; t++) {
+                if (termCounts[t] > 0) {
+                    order.add(t);
+                }
+            }
+            order.sort((a, b) -> Integer.compare(termCounts[b], termCounts[a]));
+            for (int t : order) {
+                glossaryTerms.put(glossary.getExcludedWords().get(t), termCounts[t]);
+            }
+
+            // Latency: this session's requests, then the last report in the output folder, then config.ini
+            double latency = metrics.getRequests() > 0 ? metrics.getLatency().getMeanMillis() : -1;
+            String latencySource = "measured";
+            if (latency < 0) {
+                Path reportFolder = isArchiveName(output) ? output.toAbsolutePath().getParent() : output;
+                latency = JobMetrics.readMeanLatencyMillis(JobManifest.stateFolder(reportFolder).resolve(METRICS_FILE_NAME));
+                if (latency < 0) {
+                    latency = JobMetrics.readMeanLatencyMillis(reportFolder.resolve(LEGACY_METRICS_FILE_NAME));
+                }
+                latencySource = "report";
+            }
+            if (latency < 0) {
+                latency = expectedLatencyMillis;
+                latencySource = "configured";
+            }
+            int requests = 0;
+            for (JobEstimate.Language language : languages) {
+                requests += language.requests();
+            }
+            double networkMillis = requests * latency / Math.max(1, parallelism);
+            if (requestsPerSecond > 0) {
+                networkMillis = Math.max(networkMillis, requests * 1000.0 / requestsPerSecond);
+            }
+
+            JobEstimate estimate = new JobEstimate(scan.getFiles().size(), scan.getSegmentCount(), scan.getUniqueTexts().size(),
+                    glossaryStrings, glossaryTerms, languages, scanMillis, latency, latencySource, scanMillis + (long) networkMillis);
+            logEstimate(estimate);
+            return estimate;
+        }
+    }
+
+    private void logEstimate(JobEstimate estimate) {
+        log.info("Dry run: " + estimate.strings() + " strings in " + estimate.files() + " files, "
+                + estimate.uniqueStrings() + " unique, scanned in " + estimate.scanMillis() + " ms");
+        for (JobEstimate.Language language : estimate.languages()) {
+            log.info(String.format(Locale.ROOT, "  %s: %d files (%d up to date), %d unique strings, %d from the earlier version,"
+                    + " %d in memory, %d kept as they are, %d characters in %d requests (%d saved)", language.language(),
+                    language.files(), language.skippedFiles(), language.uniqueStrings(), language.reusedStrings(),
+                    language.cachedStrings(), language.keptStrings(), language.characters(), language.requests(),
+                    language.savedRequests()));
+        }
+        StringBuilder terms = new StringBuilder();
+        int shown = 0;
+        for (Map.Entry<String, Integer> term : estimate.glossaryTerms().entrySet()) {
+            if (shown++ == 5) {
+                break;
+            }
+            terms.append(shown > 1 ? ", " : "").append(term.getKey()).append(' ').append(term.getValue());
+        }
+        log.info(String.format(Locale.ROOT, "  Glossary: %d strings (%.1f%%) hold a term%s", estimate.glossaryStrings(),
+                estimate.glossaryHitRate() * 100, terms.length() > 0 ? ", most often " + terms : ""));
+        log.info(String.format(Locale.ROOT, "  Expected time: %s for %d requests at %.0f ms (%s)",
+                JobMetrics.formatDuration(estimate.etaMillis()), estimate.requests(), estimate.latencyMillis(), estimate.latencySource()));
+    }
+
+    private void reportMetrics(Path outputFolder) {
+        metrics.finish();
+        log.info(metrics.getStatusLine());
+        log.info(String.format(Locale.ROOT, "Time spent: read %d ms, mask %d ms, network %d ms, write %d ms",
+                metrics.getReadMillis(), metrics.getMaskMillis(), metrics.getNetworkMillis(), metrics.getWriteMillis()));
+        try {
+            Path stateFolder = JobManifest.stateFolder(outputFolder);
+            Files.createDirectories(stateFolder);
+            metrics.writeReport(stateFolder.resolve(METRICS_FILE_NAME));
+            Files.deleteIfExists(outputFolder.resolve(LEGACY_METRICS_FILE_NAME)); // Left by an earlier version, never repack it
+        } catch (IOException e) {
+            log.warn("Could not write the metrics report: " + e.getMessage());
+        }
+    }
+
+    // The translations of one language, the texts that kept their original because a request failed,
+    // and for each text the files that still wait for it
+    private static final class LanguageWork {
+        final String language;
+        final int index;
+        final List<String> texts = new ArrayList<>();
+        final Map<String, String> translations = new ConcurrentHashMap<>();
+        final Set<String> failed = ConcurrentHashMap.newKeySet();
+        final Map<String, List<PendingFile>> waiting = new HashMap<>();
+        final Map<String, MarkupTokenizer.Template> templates = new HashMap<>(); // Of the texts sent
+        final Map<String, List<String>> missing = new HashMap<>(); // Texts waiting for each run sent
+        final List<String> missingRuns = new ArrayList<>();
+        final PreviousTranslation previous; // Null without an earlier version
+        int reused; // Texts translated by the earlier version
+        final int[] kept = new int[SkipFilter.Reason.values().length]; // Texts kept as they are, by reason
+        int savedRequests;
+
+        LanguageWork(String language, int index, PreviousTranslation previous) {
+            this.language = language;
+            this.index = index;
+            this.previous = previous;
+        }
+
+        int keptStrings() {
+            int strings = 0;
+            for (int count : kept) {
+                strings += count;
+            }
+            return strings;
+        }
+    }
+
+    // A file of one language and how many of its distinct texts are not translated yet
+    private record PendingFile(LanguageWork work, InterfaceScan.SourceFile file, AtomicInteger remaining) {
+    }
+
+    // One request: missingRuns[first ..] of one language
+    private record BatchRequest(LanguageWork work, List<String> batch, int first) {
+    }
+
+    // Receives a file once every text of it has its final translation
+    @FunctionalInterface
+    private interface FileReady {
+        void accept(LanguageWork work, InterfaceScan.SourceFile file) throws IOException;
+    }
+
+    /**
+     * Translates the unique texts of {@code languageFiles.get(l)} into
+     * {@code targetLanguages.get(l)} for every l. Work is tracked per string:
+     * every file counts down the distinct texts it still waits for and is
+     * handed to {@code onReady} on the executor the moment the last one is
+     * done, while other requests are still out. The texts of the largest
+     * files are sent first, so a few giant files do not end the job with a
+     * long serial tail. Texts {@code previous} holds for a language are not
+     * sent. Returns once every file has been handed over and processed.
+     */
+    private List<LanguageWork> translateUnique(List<List<InterfaceScan.SourceFile>> languageFiles, List<String> targetLanguages,
+            List<PreviousTranslation> previous, ParallelExecutor executor, FileReady onReady) throws IOException {
+        List<LanguageWork> work = new ArrayList<>(targetLanguages.size());
+        List<PendingFile> emptyFiles = new ArrayList<>();
+        long total = 0;
+        for (int l = 0; l < targetLanguages.size(); l++) {
+            LanguageWork language = new LanguageWork(targetLanguages.get(l), l, previous.get(l));
+            List<InterfaceScan.SourceFile> files = new ArrayList<>(languageFiles.get(l));
+            files.sort(Comparator.comparingInt((InterfaceScan.SourceFile file) -> file.getSegments().size()).reversed());
+            Set<String> seen = new HashSet<>();
+            for (InterfaceScan.SourceFile file : files) {
+                Set<String> fileTexts = new HashSet<>();
+                for (InterfaceScan.Segment segment : file.getSegments()) {
+                    if (fileTexts.add(segment.text()) && seen.add(segment.text())) {
+                        language.texts.add(segment.text());
+                    }
+                }
+                PendingFile pending = new PendingFile(language, file, new AtomicInteger(fileTexts.size()));
+                for (String text : fileTexts) {
+                    language.waiting.computeIfAbsent(text, k -> new ArrayList<>()).add(pending);
+                }
+                if (fileTexts.isEmpty()) {
+                    emptyFiles.add(pending);
+                }
+            }
+            total += language.texts.size();
+            work.add(language);
+        }
+        metrics.setTotalStrings(total);
+        loggedProgress.set(0);
+        for (PendingFile pending : emptyFiles) {
+            executor.submit(() -> onReady.accept(pending.work(), pending.file()));
+        }
+
+        // Texts the earlier version translated, texts with nothing to translate, texts the memory already knows
+        // and texts the skip filter keeps are done at once, the rest is batched; texts that differ only in their
+        // markup share one run and are sent once
+        List<BatchRequest> requests = new ArrayList<>();
+        for (LanguageWork language : work) {
+            Set<String> keptRuns = new LinkedHashSet<>(); // What would have been sent for the kept texts
+            for (String text : language.texts) {
+                String earlier = language.previous == null ? null : language.previous.get(text);
+                if (earlier != null) {
+                    language.reused++;
+                    resolve(language, text, earlier, executor, onReady);
+                    continue;
+                }
+                MarkupTokenizer.Template template = MarkupTokenizer.tokenize(text);
+                if (!template.isTranslatable()) {
+                    language.kept[SkipFilter.Reason.NO_WORDS.ordinal()]++;
+                    if (!text.isEmpty()) {
+                        keptRuns.add(text);
+                    }
+                    resolve(language, text, text, executor, onReady);
+                    continue;
+                }
+                String cached = lookup(template.run(), language.language);
+                if (cached != null) {
+                    resolve(language, text, finish(template, cached), executor, onReady);
+                    continue;
+                }
+                SkipFilter.Reason reason = skipFilter == null ? null : skipFilter.check(glossary.unmask(text), template, language.language);
+                if (reason != null) {
+                    language.kept[reason.ordinal()]++;
+                    keptRuns.add(template.run());
+                    resolve(language, text, finish(template, template.run()), executor, onReady);
+                    continue;
+                }
+                language.templates.put(text, template);
+                List<String> sameRun = language.missing.get(template.run());
+                if (sameRun == null) {
+                    sameRun = new ArrayList<>(1);
+                    language.missing.put(template.run(), sameRun);
+                    language.missingRuns.add(template.run());
+                }
+                sameRun.add(text);
+            }
+            int first = 0;
+            List<List<String>> batches = batcher.split(language.missingRuns);
+            for (List<String> batch : batches) {
+                requests.add(new BatchRequest(language, batch, first));
+                first += batch.size();
+            }
+            language.savedRequests = savedRequests(language.missingRuns, keptRuns, batches.size());
+            if (language.previous != null) {
+                log.info("Reused " + language.reused + " of " + language.texts.size() + " strings from the earlier version for "
+                        + language.language + ", " + (language.texts.size() - language.reused) + " are new or changed");
+            }
+            logKept(language);
+        }
+
+        // Send the unknown texts of every language to the configured translation backend, many per request
+        List<BatchRequest> retry = translateBatches(requests, executor, false, onReady);
+
+        // Batches that failed even after their retries get one more pass at the end
+        if (!retry.isEmpty()) {
+            int retryStrings = 0;
+            for (BatchRequest request : retry) {
+                retryStrings += request.batch().size();
+            }
+            log.info("Retrying " + retryStrings + " strings that failed");
+            translateBatches(retry, executor, true, onReady);
+        }
+        executor.awaitSubmitted();
+        return work;
+    }
+
+    // Requests that sending the kept runs along with the missing ones would have taken on top of requests
+    private int savedRequests(Collection<String> missingRuns, Set<String> keptRuns, int requests) {
+        if (keptRuns.isEmpty()) {
+            return 0;
+        }
+        List<String> unfiltered = new ArrayList<>(missingRuns.size() + keptRuns.size());
+        unfiltered.addAll(missingRuns);
+        unfiltered.addAll(keptRuns);
+        return batcher.split(unfiltered).size() - requests;
+    }
+
+    private void logKept(LanguageWork language) {
+        int strings = language.keptStrings();
+        if (strings == 0) {
+            return;
+        }
+        StringBuilder reasons = new StringBuilder();
+        for (SkipFilter.Reason reason : SkipFilter.Reason.values()) {
+            if (language.kept[reason.ordinal()] > 0) {
+                reasons.append(reasons.length() > 0 ? ", " : "").append(language.kept[reason.ordinal()]).append(' ')
+                        .append(reason.getDescription());
+            }
+        }
+        log.info("Kept " + strings + " strings as they are in " + language.language + " (" + reasons + "), "
+                + language.savedRequests + " requests saved");
+    }
+
+    // Sends each batch and resolves its texts. A failed batch keeps its original texts on the
+    // final pass and is returned for another pass otherwise.
+    private List<BatchRequest> translateBatches(List<BatchRequest> requests, ParallelExecutor executor, boolean finalPass,
+            FileReady onReady) throws IOException {
+        List<BatchRequest> failed = new ArrayList<>();
+        List<Boolean> done = executor.map(requests, request -> {
+            LanguageWork language = request.work();
+            List<String> translated;
+            try {
+                translated = batcher.translateBatch(request.batch(), language.language);
+                if (memory != null) {
+                    memory.putAll(request.batch(), translated, language.language);
+                }
+            } catch (IOException e) {
+                log.log(finalPass ? LogLevel.ERROR : LogLevel.WARN, "Translation error: " + e.getMessage());
+                if (!finalPass) {
+                    return false;
+                }
+                // Keep the original texts of a failed batch
+                translated = request.batch();
+                for (String run : translated) {
+                    language.failed.addAll(language.missing.get(run));
+                }
+            }
+            for (int i = 0; i < translated.size(); i++) {
+                for (String text : language.missing.get(language.missingRuns.get(request.first() + i))) {
+                    resolve(language, text, finish(language.templates.get(text), translated.get(i)), executor, onReady);
+                }
+            }
+            return true;
+        });
+        for (int i = 0; i < requests.size(); i++) {
+            if (!done.get(i)) {
+                failed.add(requests.get(i));
+            }
+        }
+        return failed;
+    }
+
+    // Stores the final translation of a text and hands over the files that waited only for it
+    private void resolve(LanguageWork language, String text, String translation, ParallelExecutor executor, FileReady onReady) {
+        language.translations.put(text, translation);
+        for (PendingFile pending : language.waiting.get(text)) {
+            if (pending.remaining().decrementAndGet() == 0) {
+                executor.submit(() -> onReady.accept(pending.work(), pending.file()));
+            }
+        }
+        metrics.addStrings(1);
+        logProgress();
+    }
+
+    // Logs every tenth of the strings done
+    private void logProgress() {
+        long total = metrics.getTotalStrings();
+        int tenths = total == 0 ? 0 : (int) (Math.min(metrics.getStrings(), total) * 10 / total);
+        int logged = loggedProgress.get();
+        if (tenths > logged && loggedProgress.compareAndSet(logged, tenths)) {
+            log.info("Translated " + metrics.getProgress().trim());
+        }
+    }
+
+    private String lookup(String run, String targetLanguage) {
+        if (memory == null) {
+            return null;
+        }
+        try {
+            return memory.get(run, targetLanguage);
+        } catch (IOException e) {
+            log.warn("Translation memory error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Put the markup back around and into the translated run, and glossary masks to their replacements
+    private String finish(MarkupTokenizer.Template template, String translatedRun) {
+        return glossary.restore(template.fill(translatedRun));
+    }
+
+    // Returns true when the file was written with every string translated
+    private boolean writeFile(InterfaceScan.SourceFile file, Path outputFile, LanguageWork translated) {
+        try (InterfaceFile source = InterfaceFile.open(file.getInput())) {
+            if (source.size() != file.getSize()) {
+                throw new IOException("File changed since it was scanned");
+            }
+            List<String> translatedTexts = new ArrayList<>(file.getSegments().size());
+            boolean complete = translate(file, translated, translatedTexts);
+            long started = System.nanoTime();
+
+            // Create output folder if it doesn't exist
+            Files.createDirectories(outputFile.getParent());
+            try (FileChannel out = FileChannel.open(outputFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                XmlStringRewriter.write(source, file.getSegments(), translatedTexts, out);
+            }
+            metrics.addPhaseTime(JobMetrics.Phase.WRITE, System.nanoTime() - started);
+            metrics.addFile();
+            log.info("File saved: " + outputFile.toAbsolutePath());
+            return complete;
+        } catch (IOException e) {
+            log.error("Error processing file: " + file.getInput().toAbsolutePath() + " - " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Rewrites one file of an archive into packed, unless nothing in it changed
+    private boolean rewriteEntry(PckArchive archive, InterfaceScan.SourceFile file, LanguageWork translated,
+            Map<Path, PckWriter.Packed> packed) {
+        try {
+            PckArchive.Entry entry = archive.getEntry(file.getRelativePath());
+            byte[] original = archive.read(entry);
+            List<String> translatedTexts = new ArrayList<>(file.getSegments().size());
+            boolean complete = translate(file, translated, translatedTexts);
+            long started = System.nanoTime();
+            ByteArrayOutputStream content = new ByteArrayOutputStream(original.length + original.length / 4);
+            XmlStringRewriter.write(InterfaceFile.wrap(original), file.getSegments(), translatedTexts, Channels.newChannel(content));
+            byte[] rewritten = content.toByteArray();
+            if (!Arrays.equals(original, rewritten)) {
+                packed.put(file.getRelativePath(), PckWriter.pack(rewritten));
+            }
+            metrics.addPhaseTime(JobMetrics.Phase.WRITE, System.nanoTime() - started);
+            metrics.addFile();
+            return complete;
+        } catch (IOException e) {
+            log.error("Error processing file: " + file.getInput() + " - " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Looks up the translation of every segment of a file, the earlier version's at the same place first;
+    // returns false when one of them failed
+    private boolean translate(InterfaceScan.SourceFile file, LanguageWork translated, List<String> translatedTexts) {
+        boolean complete = true;
+        List<InterfaceScan.Segment> segments = file.getSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            InterfaceScan.Segment segment = segments.get(i);
+            complete &= !translated.failed.contains(segment.text());
+            String translatedText = translated.previous == null ? null
+                    : translated.previous.get(file.getRelativePath(), i, segment.text());
+            if (translatedText == null) {
+                translatedText = translated.translations.getOrDefault(segment.text(), segment.text());
+            }
+            translatedTexts.add(translatedText);
+            if (log.isEnabled(LogLevel.DEBUG)) {
+                logTranslation(file.getInput(), segment.text(), translatedText);
+            }
+        }
+        return complete;
+    }
+
+    private void logTranslation(Path inputFile, String originalText, String translatedText) {
+        log.debug("Translated from file: " + inputFile.toAbsolutePath());
+        log.debug("Original: " + originalText);
+        log.debug("Translated: " + translatedText + "\n");
+    }
+}
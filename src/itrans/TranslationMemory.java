@@ -0,0 +1,261 @@
+package itrans;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Translation memory keyed by (source text, target language), so strings that
+ * were translated once are never sent over the network again.
+ * <p>
+ * Recently used entries live in a bounded LRU map. Everything else stays on
+ * disk in an append-only file with one {@code language TAB source TAB translation}
+ * record per line; only the byte offset of each record is kept in memory and
+ * the record is read back on demand.
+ */
+public class TranslationMemory implements Closeable {
+    private final FileChannel channel;
+    private final Map<String, Long> diskIndex = new ConcurrentHashMap<>();
+    private final Map<String, String> recent;
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TranslationMemory(Path file, int maxRecentEntries) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.recent = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxRecentEntries;
+            }
+        };
+        loadIndex();
+    }
+
+    /**
+     * Opens the memory file named by the {@code memoryFile} key of config.ini,
+     * with an LRU of {@code memoryCacheSize} entries.
+     */
+    public static TranslationMemory fromConfig(TranslatorConfig config) throws IOException {
+        return new TranslationMemory(config.resolve("memoryFile", "translation-memory.tsv"),
+                config.getInt("memoryCacheSize", 50000));
+    }
+
+    /**
+     * Returns the stored translation, or null when the text was never translated
+     * into this language.
+     */
+    public String get(String text, String targetLanguage) throws IOException {
+        String key = key(text, targetLanguage);
+        synchronized (recent) {
+            String cached = recent.get(key);
+            if (cached != null) {
+                memoryHits.incrementAndGet();
+                return cached;
+            }
+        }
+        Long offset = diskIndex.get(key);
+        if (offset != null) {
+            String[] record = parseRecord(readRecord(offset));
+            if (record != null) {
+                synchronized (recent) {
+                    recent.put(key, record[2]);
+                }
+                diskHits.incrementAndGet();
+                return record[2];
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns true when a translation into this language is stored, without
+     * counting a hit or a miss.
+     */
+    public boolean contains(String text, String targetLanguage) {
+        String key = key(text, targetLanguage);
+        synchronized (recent) {
+            if (recent.containsKey(key)) {
+                return true;
+            }
+        }
+        return diskIndex.containsKey(key);
+    }
+
+    /**
+     * Stores the translations of {@code texts}, appending them to the memory file.
+     */
+    public void putAll(List<String> texts, List<String> translations, String targetLanguage) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        Map<String, Integer> relativeOffsets = new HashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String key = key(texts.get(i), targetLanguage);
+            relativeOffsets.put(key, records.size());
+            String record = escape(targetLanguage) + '\t' + escape(texts.get(i)) + '\t' + escape(translations.get(i)) + '\n';
+            records.write(record.getBytes(StandardCharsets.UTF_8));
+        }
+
+        long start;
+        synchronized (channel) {
+            start = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+            long position = start;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+        synchronized (recent) {
+            for (int i = 0; i < texts.size(); i++) {
+                String key = key(texts.get(i), targetLanguage);
+                diskIndex.put(key, start + relativeOffsets.get(key));
+                recent.put(key, translations.get(i));
+            }
+        }
+    }
+
+    public long getHits() {
+        return memoryHits.get() + diskHits.get();
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return diskIndex.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    // Scan the file once for record offsets, dropping a half-written last record
+    private void loadIndex() throws IOException {
+        long offset = 0;
+        long validEnd = 0;
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(0)), 1 << 16);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        int b;
+        long recordStart = 0;
+        while ((b = in.read()) != -1) {
+            offset++;
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+            String[] record = parseRecord(line.toString(StandardCharsets.UTF_8));
+            if (record != null) {
+                diskIndex.put(key(record[1], record[0]), recordStart);
+            }
+            line.reset();
+            recordStart = offset;
+            validEnd = offset;
+        }
+        if (validEnd < channel.size()) {
+            channel.truncate(validEnd);
+        }
+    }
+
+    private String readRecord(long offset) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        long position = offset;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    return line.toString(StandardCharsets.UTF_8);
+                }
+                line.write(b);
+            }
+            position += read;
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String[] parseRecord(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 3) {
+            return null;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = unescape(fields[i]);
+        }
+        return fields;
+    }
+
+    private static String key(String text, String targetLanguage) {
+        return targetLanguage + '\u0000' + text;
+    }
+
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char escaped = value.charAt(++i);
+                switch (escaped) {
+                    case 't' -> sb.append('\t');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    default -> sb.append(escaped);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
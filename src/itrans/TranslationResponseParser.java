@@ -0,0 +1,209 @@
+package itrans;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the translated text out of a response shaped like
+ * {@code [[["Halo","Hello",...],["Dunia","World",...]],null,"en",...]}
+ * straight from the response stream. The UTF-8 bytes are decoded into the
+ * result as they arrive and everything that is not a translated sentence is
+ * skipped without being kept, so the only string built is the result.
+ * <p>
+ * Long or multi-line input comes back as several sentences; all of them are
+ * joined, with every JSON escape resolved.
+ */
+public final class TranslationResponseParser {
+    private static final int REPLACEMENT = 0xFFFD;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[2048];
+    private int position;
+    private int limit;
+
+    private TranslationResponseParser(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Parses the response and reads the stream to its end, so the connection
+     * can be reused. The stream is not closed.
+     */
+    public static String parse(InputStream in) throws IOException {
+        TranslationResponseParser parser = new TranslationResponseParser(in);
+        String translated = parser.parseResponse();
+        while (in.read(parser.buffer) >= 0) {
+            // Drain what follows the sentences
+        }
+        return translated;
+    }
+
+    private String parseResponse() throws IOException {
+        if (nextToken() != '[') {
+            throw new IOException("Unexpected translation response");
+        }
+        int c = nextToken();
+        if (c != '[') {
+            // No sentences at all, as for a blank request
+            return "";
+        }
+        StringBuilder translated = new StringBuilder(256);
+        c = nextToken();
+        while (c != ']') {
+            if (c == '[') {
+                readSentence(translated);
+            } else {
+                skipValue(c);
+            }
+            c = nextToken();
+            if (c == ',') {
+                c = nextToken();
+            }
+        }
+        return translated.toString();
+    }
+
+    // The first element of each sentence is the translated text, the rest is skipped
+    private void readSentence(StringBuilder out) throws IOException {
+        int c = nextToken();
+        if (c == '"') {
+            readString(out);
+            skipToClose(1);
+        } else if (c == '[' || c == '{') {
+            skipToClose(2);
+        } else if (c != ']') {
+            skipToClose(1);
+        }
+    }
+
+    // Skips a value whose first character was already read
+    private void skipValue(int c) throws IOException {
+        if (c == '"') {
+            readString(null);
+        } else if (c == '[' || c == '{') {
+            skipToClose(1);
+        } else {
+            // A literal such as null or a number: stop right before the separator
+            while (true) {
+                int next = peek();
+                if (next == ',' || next == ']' || next == '}' || next <= ' ') {
+                    return;
+                }
+                position++;
+            }
+        }
+    }
+
+    // Reads up to and including the bracket that closes the given number of open containers
+    private void skipToClose(int depth) throws IOException {
+        while (depth > 0) {
+            int c = next();
+            switch (c) {
+                case '"' -> readString(null);
+                case '[', '{' -> depth++;
+                case ']', '}' -> depth--;
+                default -> {
+                }
+            }
+        }
+    }
+
+    // Decodes the string after an opening quote into out, or just skips it when out is null
+    private void readString(StringBuilder out) throws IOException {
+        while (true) {
+            int b = next();
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                int escaped = next();
+                char c = switch (escaped) {
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    case 't' -> '\t';
+                    case 'b' -> '\b';
+                    case 'f' -> '\f';
+                    case 'u' -> (char) (hex(next()) << 12 | hex(next()) << 8 | hex(next()) << 4 | hex(next()));
+                    default -> (char) escaped;
+                };
+                if (out != null) {
+                    out.append(c);
+                }
+            } else if (b < 0x80) {
+                if (out != null) {
+                    out.append((char) b);
+                }
+            } else {
+                int codePoint = decodeUtf8(b);
+                if (out != null) {
+                    out.appendCodePoint(codePoint);
+                }
+            }
+        }
+    }
+
+    // Decodes a multi-byte UTF-8 sequence whose lead byte was already read
+    private int decodeUtf8(int lead) throws IOException {
+        int extra;
+        int codePoint;
+        if (lead >= 0xF0 && lead < 0xF8) {
+            extra = 3;
+            codePoint = lead & 0x07;
+        } else if (lead >= 0xE0) {
+            extra = 2;
+            codePoint = lead & 0x0F;
+        } else if (lead >= 0xC0) {
+            extra = 1;
+            codePoint = lead & 0x1F;
+        } else {
+            return REPLACEMENT;
+        }
+        for (int i = 0; i < extra; i++) {
+            int b = peek();
+            if ((b & 0xC0) != 0x80) {
+                return REPLACEMENT;
+            }
+            position++;
+            codePoint = codePoint << 6 | b & 0x3F;
+        }
+        return Character.isValidCodePoint(codePoint) ? codePoint : REPLACEMENT;
+    }
+
+    private static int hex(int c) throws IOException {
+        int digit = Character.digit(c, 16);
+        if (digit < 0) {
+            throw new IOException("Bad \\u escape in translation response");
+        }
+        return digit;
+    }
+
+    // Next character that is not whitespace
+    private int nextToken() throws IOException {
+        int c;
+        do {
+            c = next();
+        } while (c <= ' ');
+        return c;
+    }
+
+    private int next() throws IOException {
+        int c = peek();
+        if (c < 0) {
+            throw new IOException("Translation response ended early");
+        }
+        position++;
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position] & 0xFF;
+    }
+}
@@ -0,0 +1,233 @@
+package itrans;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Headless batch mode for build servers and scheduled jobs. Runs the same job
+ * as the Translate button without touching AWT or Swing, logs to stderr and
+ * prints a one-line JSON summary to stdout.
+ *
+ * <pre>
+ * java -jar I-Trans.jar --input &lt;folder|pck&gt; --output &lt;folder|pck&gt; --lang id[,ms,...] [--config config.ini]
+ *                       [--log-level error|warn|info|debug] [--dry-run | --watch]
+ *                       [--old-input &lt;folder|pck&gt; --old-output &lt;folder|pck&gt;]
+ * </pre>
+ *
+ * The input may be an interfaces.pck archive, which is translated into a new
+ * archive. All languages are translated in one job that reads the input once;
+ * with more than one language every language gets its own sub folder of the
+ * output folder. {@code --dry-run} only scans the input and prints what the
+ * job would send and how long it would take, see {@link JobEstimate}.
+ * {@code --watch} keeps running after the first job and translates input
+ * files again whenever they change, see {@link FolderWatcher}, printing one
+ * summary line per job until it is stopped with Ctrl+C. After a game patch,
+ * {@code --old-input} and {@code --old-output} name the previous client
+ * version and its translation: strings the patch did not change keep their
+ * earlier translation and only the rest is sent, see
+ * {@link PreviousTranslation}. The exit code is 0 when everything was
+ * translated, 1 when some strings or files failed, or in watch mode when any
+ * job did, 2 for bad arguments and 3 when the job could not run at all.
+ */
+public final class TranslatorCli {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_INCOMPLETE = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_ERROR = 3;
+
+    private static final Set<String> FLAGS = Set.of("dry-run", "watch"); // Options without a value
+    private static final Set<String> OPTIONS = Set.of("input", "output", "lang", "config", "log-level", "old-input", "old-output");
+
+    // Set by main once run has returned and the engine is closed, for a watch stopped with Ctrl+C
+    private static final CountDownLatch finished = new CountDownLatch(1);
+    private static volatile int exitCode;
+
+    private TranslatorCli() {
+    }
+
+    public static void main(String[] args) {
+        exitCode = run(args, System.out, System.err);
+        finished.countDown();
+        System.exit(exitCode);
+    }
+
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        System.setProperty("java.awt.headless", "true");
+
+        Map<String, String> options;
+        try {
+            options = parseOptions(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            printUsage(err);
+            return EXIT_USAGE;
+        }
+        if (!options.containsKey("input") || !options.containsKey("output") || !options.containsKey("lang")) {
+            printUsage(err);
+            return EXIT_USAGE;
+        }
+
+        Path inputFolder = Paths.get(options.get("input"));
+        Path outputFolder = Paths.get(options.get("output"));
+        List<String> languages = new ArrayList<>();
+        for (String language : options.get("lang").split(",")) {
+            if (!language.trim().isEmpty()) {
+                languages.add(language.trim());
+            }
+        }
+        if (languages.isEmpty()) {
+            printUsage(err);
+            return EXIT_USAGE;
+        }
+        if (options.containsKey("old-input") != options.containsKey("old-output")) {
+            err.println("--old-input and --old-output go together");
+            printUsage(err);
+            return EXIT_USAGE;
+        }
+        if (options.containsKey("dry-run") && options.containsKey("watch")) {
+            err.println("--dry-run cannot be used with --watch");
+            printUsage(err);
+            return EXIT_USAGE;
+        }
+        if (options.containsKey("old-input") && options.containsKey("watch")) {
+            err.println("--old-input cannot be used with --watch");
+            printUsage(err);
+            return EXIT_USAGE;
+        }
+        Path oldInput = options.containsKey("old-input") ? Paths.get(options.get("old-input")) : null;
+        Path oldOutput = options.containsKey("old-output") ? Paths.get(options.get("old-output")) : null;
+        if (options.containsKey("config") && !Files.isRegularFile(Paths.get(options.get("config")))) {
+            // Running with the defaults instead would go unnoticed on a build server
+            err.println("Config file not found: " + Paths.get(options.get("config")).toAbsolutePath());
+            printUsage(err);
+            return EXIT_USAGE;
+        }
+
+        long started = System.nanoTime();
+        List<JobSummary> summaries = new ArrayList<>();
+        try {
+            TranslatorConfig config = options.containsKey("config")
+                    ? TranslatorConfig.load(Paths.get(options.get("config")))
+                    : TranslatorConfig.load();
+            try (TranslationEngine engine = TranslationEngine.create(config, err::println)) {
+                LogLevel level = LogLevel.parse(options.get("log-level"), engine.getLogLevel());
+                JobLog log = engine.createLog().addSink(level, (messageLevel, message) -> err.println(
+                        messageLevel == LogLevel.INFO ? message : messageLevel + ": " + message));
+                Glossary glossary = Glossary.fromConfig(config);
+                if (options.containsKey("dry-run")) {
+                    TranslationJob job = engine.createJob(glossary, log);
+                    job.setPreviousVersion(oldInput, oldOutput);
+                    JobEstimate estimate = job.estimate(inputFolder, outputFolder, languages);
+                    out.println("{\"status\":\"dry-run\",\"estimate\":" + estimate.toJson() + ",\"elapsedMs\":"
+                            + (System.nanoTime() - started) / 1_000_000 + "}");
+                    return EXIT_OK;
+                }
+                if (options.containsKey("watch")) {
+                    FolderWatcher watcher = new FolderWatcher(engine, glossary, log, inputFolder, outputFolder, languages);
+                    // Ctrl+C lets the job in progress finish and the engine close before the process ends,
+                    // then ends it with the exit code of the watch instead of that of the signal
+                    Thread stop = new Thread(() -> {
+                        try {
+                            watcher.close();
+                        } catch (IOException e) {
+                            err.println("Failed to stop watching: " + e.getMessage());
+                        }
+                        try {
+                            if (finished.await(30, TimeUnit.SECONDS)) {
+                                out.flush();
+                                Runtime.getRuntime().halt(exitCode);
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                    Runtime.getRuntime().addShutdownHook(stop);
+                    AtomicBoolean incomplete = new AtomicBoolean();
+                    try {
+                        watcher.run(jobSummaries -> {
+                            boolean successful = jobSummaries.stream().allMatch(JobSummary::isSuccessful);
+                            if (!successful) {
+                                incomplete.set(true);
+                            }
+                            out.println(summaryJson(successful ? "ok" : "incomplete",
+                                    jobSummaries, jobSummaries.stream().mapToLong(JobSummary::elapsedMillis).max().orElse(0)));
+                        });
+                    } finally {
+                        // The watcher is closed once: here, or by the hook when the process is shutting down
+                        try {
+                            Runtime.getRuntime().removeShutdownHook(stop);
+                            watcher.close();
+                        } catch (IllegalStateException e) {
+                            // Shutdown in progress, the hook closes it
+                        }
+                    }
+                    return incomplete.get() || watcher.getFailedJobs() > 0 ? EXIT_INCOMPLETE : EXIT_OK;
+                }
+                TranslationJob job = engine.createJob(glossary, log);
+                job.setPreviousVersion(oldInput, oldOutput);
+                summaries.addAll(job.run(inputFolder, outputFolder, languages));
+            }
+        } catch (IOException | RuntimeException e) {
+            err.println("Translation failed: " + e.getMessage());
+            out.println(summaryJson("error", summaries, (System.nanoTime() - started) / 1_000_000));
+            return EXIT_ERROR;
+        }
+
+        boolean complete = summaries.stream().allMatch(JobSummary::isSuccessful);
+        out.println(summaryJson(complete ? "ok" : "incomplete", summaries, (System.nanoTime() - started) / 1_000_000));
+        return complete ? EXIT_OK : EXIT_INCOMPLETE;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String name = arg.substring(2);
+            int eq = name.indexOf('=');
+            String optionName = eq >= 0 ? name.substring(0, eq) : name;
+            if (!FLAGS.contains(optionName) && !OPTIONS.contains(optionName)) {
+                throw new IllegalArgumentException("Unknown option: --" + optionName);
+            }
+            if (FLAGS.contains(optionName)) {
+                if (eq >= 0) {
+                    throw new IllegalArgumentException("Option --" + optionName + " takes no value");
+                }
+                options.put(name, "true");
+            } else if (eq >= 0) {
+                options.put(name.substring(0, eq), name.substring(eq + 1));
+            } else if (i + 1 < args.length) {
+                options.put(name, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+        }
+        return options;
+    }
+
+    private static String summaryJson(String status, List<JobSummary> summaries, long elapsedMillis) {
+        StringBuilder json = new StringBuilder("{\"status\":\"").append(status).append("\",\"jobs\":[");
+        for (int i = 0; i < summaries.size(); i++) {
+            json.append(i > 0 ? "," : "").append(summaries.get(i).toJson());
+        }
+        return json.append("],\"elapsedMs\":").append(elapsedMillis).append('}').toString();
+    }
+
+    private static void printUsage(PrintStream err) {
+        err.println("Usage: java -jar I-Trans.jar --input <folder|pck> --output <folder|pck> --lang <code>[,<code>...] [--config <config.ini>]"
+                + " [--log-level error|warn|info|debug] [--dry-run | --watch] [--old-input <folder|pck> --old-output <folder|pck>]");
+    }
+}
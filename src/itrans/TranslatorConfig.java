@@ -0,0 +1,105 @@
+package itrans;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Settings read from config.ini. The file is looked up next to the jar (or the
+ * class folder) first and then in the working directory; missing keys fall back
+ * to the given defaults.
+ */
+public class TranslatorConfig {
+    public static final String FILE_NAME = "config.ini";
+
+    private final Properties properties;
+    private final Path source;
+
+    private TranslatorConfig(Properties properties, Path source) {
+        this.properties = properties;
+        this.source = source;
+    }
+
+    public static TranslatorConfig load() throws IOException {
+        return load(locate());
+    }
+
+    public static TranslatorConfig load(Path configFile) throws IOException {
+        Properties properties = new Properties();
+        if (configFile != null && Files.isRegularFile(configFile)) {
+            try (Reader reader = new InputStreamReader(Files.newInputStream(configFile), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+        return new TranslatorConfig(properties, configFile);
+    }
+
+    public static TranslatorConfig empty() {
+        return new TranslatorConfig(new Properties(), null);
+    }
+
+    // Find config.ini beside the jar, like the translator always did, or in the working directory
+    private static Path locate() {
+        try {
+            String jarPath = new File(TranslatorConfig.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getParent();
+            if (jarPath != null) {
+                Path besideJar = Paths.get(jarPath, FILE_NAME);
+                if (Files.isRegularFile(besideJar)) {
+                    return besideJar;
+                }
+            }
+        } catch (Exception e) {
+            // Fall through to the working directory
+        }
+        return Paths.get(FILE_NAME);
+    }
+
+    public Path getSource() {
+        return source;
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Returns the path named by {@code key}, relative paths being resolved
+     * against the folder that holds config.ini.
+     */
+    public Path resolve(String key, String defaultValue) {
+        Path path = Paths.get(getString(key, defaultValue));
+        Path folder = source == null ? null : source.toAbsolutePath().getParent();
+        return path.isAbsolute() || folder == null ? path : folder.resolve(path);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns true for {@code true}, {@code yes}, {@code on} or {@code 1} and
+     * false for any other value.
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value.equalsIgnoreCase("true") || value.equalsIgnoreCase("yes") || value.equalsIgnoreCase("on") || value.equals("1");
+    }
+}
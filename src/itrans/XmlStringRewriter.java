@@ -0,0 +1,114 @@
+package itrans;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * Writes the translated {@code String="..."} values into a document in a single
+ * forward pass over its bytes: the bytes between two values are copied as
+ * they are, in the file's own encoding and byte order mark, and only the
+ * translations are encoded. Short runs are gathered in one buffer so a file
+ * costs a few writes; long runs go straight from the source file to the
+ * output channel.
+ * <p>
+ * A translation is escaped for the attribute it goes into: quotes, bare
+ * ampersands and {@code <} become entities, while entities already in it,
+ * which came from the source value, are kept. A value that was not changed
+ * is written back exactly as it was.
+ */
+public final class XmlStringRewriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private XmlStringRewriter() {
+    }
+
+    /**
+     * Writes {@code source} to {@code out} with the value of every segment
+     * replaced by the replacement at the same index, escaped with
+     * {@link #escapeAttribute(String)} unless it equals the value it replaces.
+     * Segments must be in document order.
+     */
+    public static void write(InterfaceFile source, List<InterfaceScan.Segment> segments, List<String> replacements,
+            WritableByteChannel out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(BUFFER_SIZE, Math.max(256, source.size() + source.size() / 4)));
+        int copied = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            InterfaceScan.Segment segment = segments.get(i);
+            copy(source, copied, segment.start() - copied, buffer, out);
+            String replacement = replacements.get(i);
+            put(source.encode(replacement.equals(segment.text()) ? replacement : escapeAttribute(replacement)), buffer, out);
+            copied = segment.end();
+        }
+        copy(source, copied, source.size() - copied, buffer, out);
+        flush(buffer, out);
+    }
+
+    /**
+     * Escapes {@code value} for a double-quoted XML attribute: {@code "},
+     * {@code <} and every {@code &} that does not start an entity are
+     * replaced by entities.
+     */
+    public static String escapeAttribute(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String entity = switch (c) {
+                case '"' -> "&quot;";
+                case '<' -> "&lt;";
+                case '&' -> MarkupTokenizer.entityLength(value, i) > 0 ? null : "&amp;";
+                default -> null;
+            };
+            if (entity != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (entity != null) {
+                    escaped.append(entity);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped == null ? value : escaped.toString();
+    }
+
+    private static void copy(InterfaceFile source, int position, int length, ByteBuffer buffer, WritableByteChannel out)
+            throws IOException {
+        if (length > buffer.remaining() && length >= BUFFER_SIZE) {
+            flush(buffer, out);
+            source.transferTo(position, length, out);
+            return;
+        }
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                flush(buffer, out);
+            }
+            int chunk = Math.min(length, buffer.remaining());
+            source.copyTo(position, chunk, buffer);
+            position += chunk;
+            length -= chunk;
+        }
+    }
+
+    private static void put(byte[] bytes, ByteBuffer buffer, WritableByteChannel out) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush(buffer, out);
+            }
+            int chunk = Math.min(bytes.length - offset, buffer.remaining());
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    private static void flush(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+}